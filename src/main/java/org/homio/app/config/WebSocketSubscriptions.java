@@ -0,0 +1,126 @@
+package org.homio.app.config;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import org.homio.api.ContextBGP.ThreadPuller;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Tracks STOMP subscriptions per destination, so server may skip building and sending messages no one listens for.
+ * Also keeps send statistic per destination
+ */
+@Component
+public class WebSocketSubscriptions implements ApplicationListener<AbstractSubProtocolEvent> {
+
+    // sessionId -> subscriptionId -> subscription
+    private final Map<String, Map<String, Subscription>> sessions = new ConcurrentHashMap<>();
+    // destination -> number of subscriptions
+    private final Map<String, Integer> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, DestinationStatistic> statistic = new ConcurrentHashMap<>();
+    private final List<SubscriptionListener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onApplicationEvent(@NotNull AbstractSubProtocolEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return;
+        }
+        if (event instanceof SessionSubscribeEvent) {
+            String destination = accessor.getDestination();
+            if (destination != null && accessor.getSubscriptionId() != null) {
+                Subscription subscription = new Subscription(destination, accessor.getFirstNativeHeader("entityID"));
+                sessions.computeIfAbsent(sessionId, s -> new ConcurrentHashMap<>()).put(accessor.getSubscriptionId(), subscription);
+                subscribers.merge(destination, 1, Integer::sum);
+                for (SubscriptionListener listener : listeners) {
+                    listener.onSubscribe(subscription);
+                }
+            }
+        } else if (event instanceof SessionUnsubscribeEvent) {
+            Map<String, Subscription> subscriptions = sessions.get(sessionId);
+            if (subscriptions != null && accessor.getSubscriptionId() != null) {
+                unsubscribe(subscriptions.remove(accessor.getSubscriptionId()));
+            }
+        } else if (event instanceof SessionDisconnectEvent) {
+            // detach everything session subscribed to, even if client not sent UNSUBSCRIBE frames
+            Map<String, Subscription> subscriptions = sessions.remove(sessionId);
+            if (subscriptions != null) {
+                subscriptions.values().forEach(this::unsubscribe);
+            }
+        }
+    }
+
+    public void addListener(@NotNull SubscriptionListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean hasSubscribers(@NotNull String destination) {
+        return subscribers.containsKey(destination);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public void recordSend(@NotNull String destination, int bytes) {
+        DestinationStatistic item = statistic.computeIfAbsent(destination, d -> new DestinationStatistic());
+        item.messages.increment();
+        item.bytes.add(bytes);
+    }
+
+    public void recordSkip(@NotNull String destination) {
+        statistic.computeIfAbsent(destination, d -> new DestinationStatistic()).skipped.increment();
+    }
+
+    public void pullStatistic(@NotNull ThreadPuller threadPuller) {
+        for (Map.Entry<String, DestinationStatistic> entry : statistic.entrySet()) {
+            DestinationStatistic item = entry.getValue();
+            threadPuller.addThread(entry.getKey(), "Subscribers: %s. Messages: %s. Bytes: %s. Skipped: %s".formatted(
+                subscribers.getOrDefault(entry.getKey(), 0), item.messages.sum(), item.bytes.sum(), item.skipped.sum()),
+                item.creationTime, "RUNNING", null, null);
+        }
+    }
+
+    private void unsubscribe(@Nullable Subscription subscription) {
+        if (subscription != null) {
+            subscribers.computeIfPresent(subscription.destination, (d, count) -> count <= 1 ? null : count - 1);
+            for (SubscriptionListener listener : listeners) {
+                listener.onUnsubscribe(subscription);
+            }
+        }
+    }
+
+    /**
+     * @param entityID - optional 'entityID' native header of SUBSCRIBE frame
+     */
+    public record Subscription(@NotNull String destination, @Nullable String entityID) {
+
+    }
+
+    public interface SubscriptionListener {
+
+        void onSubscribe(@NotNull Subscription subscription);
+
+        void onUnsubscribe(@NotNull Subscription subscription);
+    }
+
+    private static class DestinationStatistic {
+
+        private final Date creationTime = new Date();
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+    }
+}
@@ -2,7 +2,9 @@ package org.homio.app.json;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import lombok.Getter;
 import org.homio.app.manager.common.impl.ContextBGPImpl;
 import org.json.JSONObject;
@@ -11,6 +13,8 @@ import org.json.JSONObject;
 public class BgpProcessResponse {
 
     private final List<BgpProcess> processes = new ArrayList<>();
+    // scheduler saturation and worker latency
+    private final Map<String, Object> statistic = new LinkedHashMap<>();
 
     public void add(ContextBGPImpl.ThreadContextImpl<?> context) {
         this.processes.add(new BgpProcess(context));
@@ -29,6 +33,8 @@ public class BgpProcessResponse {
         private final String state;
         private final JSONObject metadata;
         private final String nextCall;
+        private final Long startLatency;
+        private final Long lastDuration;
 
         public BgpProcess(ContextBGPImpl.ThreadContextImpl<?> context) {
             this.name = context.getName();
@@ -41,6 +47,8 @@ public class BgpProcessResponse {
             this.state = context.getState();
             this.metadata = context.getMetadata();
             this.nextCall = context.getTimeToNextSchedule();
+            this.startLatency = context.getStartLatency();
+            this.lastDuration = context.getLastDuration();
         }
     }
 }
@@ -0,0 +1,79 @@
+package org.homio.app.manager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToIntFunction;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * Spring cache backed by guava cache with size or weight limit and hit/miss/eviction statistic
+ */
+public class BoundedCache extends AbstractValueAdaptingCache {
+
+    private final @Getter String name;
+    private final Cache<Object, Object> cache;
+
+    /**
+     * @param weigher - if not null, maxSize is max total weight of cached values
+     */
+    public BoundedCache(@NotNull String name, long maxSize, @Nullable ToIntFunction<Object> weigher) {
+        super(true);
+        this.name = name;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (weigher == null) {
+            builder.maximumSize(maxSize);
+        } else {
+            builder.maximumWeight(maxSize).weigher((key, value) -> weigher.applyAsInt(value));
+        }
+        this.cache = builder.build();
+    }
+
+    @Override
+    public @NotNull Object getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    protected @Nullable Object lookup(@NotNull Object key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NotNull Object key, @NotNull Callable<T> valueLoader) {
+        try {
+            return (T) fromStoreValue(cache.get(key, () -> toStoreValue(valueLoader.call())));
+        } catch (ExecutionException ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        }
+    }
+
+    @Override
+    public void put(@NotNull Object key, @Nullable Object value) {
+        cache.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public void evict(@NotNull Object key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public @NotNull CacheStats getStats() {
+        return cache.stats();
+    }
+}
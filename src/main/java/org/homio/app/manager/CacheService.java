@@ -3,23 +3,35 @@ package org.homio.app.manager;
 import static org.homio.app.manager.common.ClassFinder.CLASSES_WITH_PARENT_CLASS;
 import static org.homio.app.manager.common.ClassFinder.REPOSITORY_BY_CLAZZ;
 
+import com.google.common.cache.CacheStats;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.homio.api.Context;
+import org.homio.api.ContextBGP.ThreadPuller;
 import org.homio.api.entity.BaseEntity;
+import org.homio.api.entity.HasJsonData;
 import org.homio.api.exception.ServerException;
 import org.homio.api.model.HasEntityIdentifier;
+import org.homio.app.config.TransactionManagerContext;
+import org.homio.app.manager.common.EntityManager;
 import org.homio.app.repository.AbstractRepository;
 import org.homio.app.utils.CollectionUtils;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
@@ -31,22 +43,41 @@ public class CacheService {
     public static final String CACHE_CLASS_BY_TYPE = "CACHE_CLASS_BY_TYPE";
     public static final String ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI =
             "ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI";
-    public static final String ENTITY_IDS_BY_CLASS_NAME = "ENTITY_IDS_BY_CLASS_NAME";
     public static final String JS_COMPLETIONS = "JS_COMPLETIONS";
+    // failed delayed update re-queued for next flush until reached max attempts
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
 
-    private final Map<String, UpdateStatement> entityCache = new ConcurrentHashMap<>();
+    private final Object entityCacheLock = new Object();
+    // pending delayed updates. Swapped with empty map on flush, so writers never wait for db
+    private volatile Map<String, UpdateStatement> entityCache = new ConcurrentHashMap<>();
+    // updates which are being written to db right now. Still merges into read entities until transaction committed
+    private volatile Map<String, UpdateStatement> flushingCache = Map.of();
+    private final FlushStatistic flushStatistic = new FlushStatistic();
 
     private final CacheManager cacheManager;
     private final ApplicationContext applicationContext;
 
     public static CacheManager createCacheManager() {
-        return new ConcurrentMapCacheManager(
-                CLASSES_WITH_PARENT_CLASS,
-                ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI,
-                ENTITY_IDS_BY_CLASS_NAME,
-                REPOSITORY_BY_CLAZZ,
-                CACHE_CLASS_BY_TYPE,
-                JS_COMPLETIONS);
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                new BoundedCache(CLASSES_WITH_PARENT_CLASS, 10_000, CacheService::collectionWeight),
+                new BoundedCache(ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI, 100_000, CacheService::entityWeight),
+                new BoundedCache(REPOSITORY_BY_CLAZZ, 1000, null),
+                new BoundedCache(CACHE_CLASS_BY_TYPE, 1000, null),
+                new BoundedCache(JS_COMPLETIONS, 5000, CacheService::collectionWeight)));
+        return cacheManager;
+    }
+
+    /**
+     * Entity size mostly depends on jsonData, so weight is number of json keys. Key count is O(1) unlike serialization
+     */
+    static int entityWeight(Object value) {
+        return value instanceof HasJsonData entity && entity.getJsonData() != null ? 1 + entity.getJsonData().length() : 1;
+    }
+
+    // cached class lists weight is number of classes
+    static int collectionWeight(Object value) {
+        return value instanceof Collection<?> collection ? Math.max(1, collection.size()) : 1;
     }
 
     public void clearCache() {
@@ -54,84 +85,189 @@ public class CacheService {
         for (String cache : cacheManager.getCacheNames()) {
             Objects.requireNonNull(cacheManager.getCache(cache)).clear();
         }
+        applicationContext.getBean(EntityManager.class).getEntityIdIndex().clear();
     }
 
+    /**
+     * Evict entity and it's related entities. Entity ids by class maintained by EntityIdIndex
+     */
     public void entityUpdated(BaseEntity entity) {
         Set<BaseEntity> relatedEntities = CollectionUtils.nullSafeSet();
         entity.getAllRelatedEntities(relatedEntities);
         relatedEntities.add(entity);
+        Cache entityCache = Objects.requireNonNull(cacheManager.getCache(ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI));
         for (BaseEntity relatedEntity : relatedEntities) {
             if (relatedEntity != null) {
-                Objects.requireNonNull(cacheManager.getCache(ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI))
-                        .evict(relatedEntity.getEntityID());
+                entityCache.evict(relatedEntity.getEntityID());
+            }
+        }
+    }
+
+    public void evictEntity(String entityID) {
+        Objects.requireNonNull(cacheManager.getCache(ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI)).evict(entityID);
+    }
+
+    public void pullStatistic(ThreadPuller threadPuller) {
+        for (String name : cacheManager.getCacheNames()) {
+            if (cacheManager.getCache(name) instanceof BoundedCache cache) {
+                CacheStats stats = cache.getStats();
+                threadPuller.addThread(name, "Size: %s. Hits: %s. Misses: %s. Evictions: %s. Hit rate: %.2f".formatted(
+                        cache.size(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate()),
+                    null, "RUNNING", null, null);
             }
         }
-        // need remove all because entity may create also another entities
-        Objects.requireNonNull(cacheManager.getCache(ENTITY_IDS_BY_CLASS_NAME)).clear();
+        UpdateStatement oldest = findOldestUpdate();
+        threadPuller.addThread("delayed-updates", "Backlog: %s. Oldest: %s. Flushes: %s. Entities: %s. Failed: %s. Latency last/max/avg: %s/%s/%s ms"
+                .formatted(entityCache.size(), oldest == null ? "-" : (System.currentTimeMillis() - oldest.created) + "ms",
+                    flushStatistic.flushes.sum(), flushStatistic.entities.sum(), flushStatistic.failed.sum(),
+                    flushStatistic.lastLatency.get(), flushStatistic.maxLatency.get(), flushStatistic.getAverageLatency()),
+            flushStatistic.creationTime, "RUNNING", null, null);
     }
 
-    public void putToCache(AbstractRepository repository, HasEntityIdentifier entity, Map<String, Object[]> changeFields) {
+    public void putToCache(AbstractRepository repository, HasEntityIdentifier entity, @Nullable EntityAccessor.Changes changes) {
         String identifier = entity.getIdentifier();
         if (identifier == null) {
             throw new ServerException("Unable update state without id" + entity);
         }
-        synchronized (entityCache) {
-            if (entityCache.containsKey(identifier)) {
-                // override changed fields
-                entityCache.get(identifier).changeFields.putAll(changeFields);
-            } else {
-                entityCache.put(identifier, new UpdateStatement(identifier, repository, changeFields));
+        synchronized (entityCacheLock) {
+            UpdateStatement updateStatement = entityCache.get(identifier);
+            if (updateStatement == null) {
+                entityCache.put(identifier, new UpdateStatement(identifier, repository, changes, System.currentTimeMillis(), 0));
+            } else if (changes != null) {
+                // override changed fields. Changes are immutable, so merge() readers see old or new changes, never partial
+                updateStatement.changes = updateStatement.changes == null ? changes : updateStatement.changes.merge(changes);
             }
         }
     }
 
-    @SneakyThrows
     public void merge(BaseEntity baseEntity) {
-        UpdateStatement updateStatement = entityCache.get(baseEntity.getIdentifier());
-        if (updateStatement != null && updateStatement.changeFields != null) {
-            for (Map.Entry<String, Object[]> entry : updateStatement.changeFields.entrySet()) {
-                MethodUtils.invokeMethod(baseEntity, entry.getKey(), entry.getValue());
-            }
-        }
+        // in-flight changes first, so newer pending changes override them
+        merge(flushingCache.get(baseEntity.getIdentifier()), baseEntity);
+        merge(entityCache.get(baseEntity.getIdentifier()), baseEntity);
     }
 
     public void delete(String entityId) {
-        entityCache.remove(entityId);
-    }
-
-    public void flushDelayedUpdates() {
-        if (!entityCache.isEmpty()) {
-            synchronized (entityCache) {
-                Context context = applicationContext.getBean(Context.class);
-                for (UpdateStatement updateStatement : entityCache.values()) {
-                    try {
-                        if (updateStatement.changeFields != null) {
-                            BaseEntity baseEntity = context.db().getEntity(updateStatement.entityID, false);
-                            for (Map.Entry<String, Object[]> entry : updateStatement.changeFields.entrySet()) {
-                                MethodUtils.invokeMethod(baseEntity, entry.getKey(), entry.getValue());
-                            }
-                            updateStatement.repository.flushCashedEntity(baseEntity);
-
-                            if (baseEntity instanceof BaseEntity) {
-                                entityUpdated(baseEntity);
-                            }
+        synchronized (entityCacheLock) {
+            entityCache.remove(entityId);
+        }
+    }
+
+    /**
+     * Flush delayed updates only if number of pending entities reached maxSize or oldest pending update older than maxAge
+     */
+    public void flushDelayedUpdatesIfRequired(int maxSize, Duration maxAge) {
+        Map<String, UpdateStatement> pending = entityCache;
+        if (pending.isEmpty()) {
+            return;
+        }
+        UpdateStatement oldest = findOldestUpdate();
+        if (pending.size() >= maxSize || (oldest != null && System.currentTimeMillis() - oldest.created >= maxAge.toMillis())) {
+            flushDelayedUpdates();
+        }
+    }
+
+    /**
+     * Write all pending delayed updates to db within single transaction
+     */
+    public synchronized void flushDelayedUpdates() {
+        Map<String, UpdateStatement> batch;
+        synchronized (entityCacheLock) {
+            if (entityCache.isEmpty()) {
+                return;
+            }
+            batch = entityCache;
+            flushingCache = batch;
+            entityCache = new ConcurrentHashMap<>();
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            Context context = applicationContext.getBean(Context.class);
+            List<BaseEntity> entities = new ArrayList<>(batch.size());
+            for (UpdateStatement updateStatement : batch.values()) {
+                try {
+                    if (updateStatement.changes != null) {
+                        BaseEntity baseEntity = context.db().getEntity(updateStatement.entityID, false);
+                        if (baseEntity != null) {
+                            updateStatement.changes.apply(baseEntity);
+                            entities.add(baseEntity);
                         }
-                    } catch (Exception ex) {
-                        log.error("Error delay update entity <{}>", updateStatement.entityID, ex);
                     }
+                } catch (Exception ex) {
+                    flushStatistic.failed.increment();
+                    log.error("Error delay update entity <{}>", updateStatement.entityID, ex);
                 }
-                entityCache.clear();
             }
+            if (!entities.isEmpty()) {
+                saveEntities(batch, entities);
+            }
+        } finally {
+            flushingCache = Map.of();
+            flushStatistic.record(batch.size(), System.currentTimeMillis() - startTime);
         }
     }
 
-    public Object getFieldValue(String identifier, String key) {
-        synchronized (entityCache) {
-            if (entityCache.containsKey(identifier)) {
-                return entityCache.get(identifier).changeFields.get(key);
+    private void saveEntities(Map<String, UpdateStatement> batch, List<BaseEntity> entities) {
+        try {
+            applicationContext.getBean(TransactionManagerContext.class).executeInTransaction(em -> {
+                for (BaseEntity entity : entities) {
+                    em.merge(entity);
+                }
+            });
+        } catch (Exception batchEx) {
+            log.warn("Unable to flush {} delayed updates in one transaction. Flush one by one", entities.size(), batchEx);
+            for (BaseEntity entity : new ArrayList<>(entities)) {
+                UpdateStatement updateStatement = batch.get(entity.getIdentifier());
+                try {
+                    updateStatement.repository.flushCashedEntity(entity);
+                } catch (Exception ex) {
+                    entities.remove(entity);
+                    flushStatistic.failed.increment();
+                    log.error("Error delay update entity <{}>", entity.getEntityID(), ex);
+                    requeue(updateStatement);
+                }
+            }
+        }
+        for (BaseEntity entity : entities) {
+            entityUpdated(entity);
+        }
+    }
+
+    /**
+     * Return failed update back to pending updates. Changes which came while flushing override failed changes
+     */
+    private void requeue(UpdateStatement failed) {
+        if (++failed.attempts >= MAX_FLUSH_ATTEMPTS) {
+            log.error("Drop delayed update of entity <{}> after {} attempts", failed.entityID, failed.attempts);
+            return;
+        }
+        synchronized (entityCacheLock) {
+            UpdateStatement newer = entityCache.get(failed.entityID);
+            if (newer == null) {
+                entityCache.put(failed.entityID, failed);
+            } else {
+                if (failed.changes != null) {
+                    newer.changes = newer.changes == null ? failed.changes : failed.changes.merge(newer.changes);
+                }
+                newer.created = Math.min(newer.created, failed.created);
+                newer.attempts = failed.attempts;
             }
         }
-        return null;
+    }
+
+    private @Nullable UpdateStatement findOldestUpdate() {
+        UpdateStatement oldest = null;
+        for (UpdateStatement updateStatement : entityCache.values()) {
+            if (oldest == null || updateStatement.created < oldest.created) {
+                oldest = updateStatement;
+            }
+        }
+        return oldest;
+    }
+
+    private static void merge(@Nullable UpdateStatement updateStatement, BaseEntity baseEntity) {
+        if (updateStatement != null && updateStatement.changes != null) {
+            updateStatement.changes.apply(baseEntity);
+        }
     }
 
     @AllArgsConstructor
@@ -139,6 +275,33 @@ public class CacheService {
 
         String entityID;
         AbstractRepository repository;
-        Map<String, Object[]> changeFields;
+        volatile EntityAccessor.Changes changes;
+        volatile long created;
+        // failed flushes of changes
+        int attempts;
+    }
+
+    private static class FlushStatistic {
+
+        private final Date creationTime = new Date();
+        private final LongAdder flushes = new LongAdder();
+        private final LongAdder entities = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalLatency = new LongAdder();
+        private final AtomicLong lastLatency = new AtomicLong();
+        private final AtomicLong maxLatency = new AtomicLong();
+
+        private void record(int size, long latency) {
+            flushes.increment();
+            entities.add(size);
+            totalLatency.add(latency);
+            lastLatency.set(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
+
+        private long getAverageLatency() {
+            long count = flushes.sum();
+            return count == 0 ? 0 : totalLatency.sum() / count;
+        }
     }
 }
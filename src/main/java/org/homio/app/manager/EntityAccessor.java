@@ -0,0 +1,308 @@
+package org.homio.app.manager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.SneakyThrows;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precomputed getter/setter method handles of entity class properties. Uses by delayed updates to detect and replay changed
+ * properties without proxies and reflection lookups. Tracks getter/setter pairs of simple types and json properties (like
+ * jsonData) exposed only by getter: json changes recorded per key, as setJsonData(key, value) does, and replayed into json of
+ * target entity.
+ */
+@Log4j2
+public final class EntityAccessor {
+
+    private static final Map<Class<?>, EntityAccessor> ACCESSORS = new ConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<?> entityClass;
+    private final String[] names;
+    private final MethodHandle[] getters;
+    // null for json properties which are updated in place
+    private final MethodHandle[] setters;
+    // json values compares per key and stores as copy
+    private final boolean[] json;
+
+    private EntityAccessor(Class<?> entityClass) {
+        this.entityClass = entityClass;
+        Map<String, Method[]> properties = new LinkedHashMap<>();
+        for (Method getter : entityClass.getMethods()) {
+            String property = getPropertyName(getter);
+            if (property == null || properties.containsKey(property)) {
+                continue;
+            }
+            if (isJson(getter.getReturnType())) {
+                properties.put(property, new Method[]{getter, null});
+            } else if (isTracked(getter.getReturnType())) {
+                Method setter = MethodUtils.getAccessibleMethod(entityClass, "set" + property, getter.getReturnType());
+                if (setter != null && !Modifier.isStatic(setter.getModifiers())) {
+                    properties.put(property, new Method[]{getter, setter});
+                }
+            }
+        }
+        List<String> names = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        List<Boolean> json = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Map.Entry<String, Method[]> entry : properties.entrySet()) {
+            try {
+                Method getter = entry.getValue()[0];
+                Method setter = entry.getValue()[1];
+                getter.trySetAccessible();
+                MethodHandle getterHandle = lookup.unreflect(getter).asType(GETTER_TYPE);
+                MethodHandle setterHandle = null;
+                if (setter != null) {
+                    setter.trySetAccessible();
+                    setterHandle = lookup.unreflect(setter).asType(SETTER_TYPE);
+                }
+                getters.add(getterHandle);
+                setters.add(setterHandle);
+                names.add(entry.getKey());
+                json.add(setter == null);
+            } catch (IllegalAccessException ex) {
+                log.warn("Unable to access property {} of {}", entry.getKey(), entityClass.getSimpleName());
+            }
+        }
+        this.names = names.toArray(new String[0]);
+        this.getters = getters.toArray(new MethodHandle[0]);
+        this.setters = setters.toArray(new MethodHandle[0]);
+        this.json = new boolean[this.names.length];
+        for (int i = 0; i < this.names.length; i++) {
+            this.json[i] = json.get(i);
+        }
+    }
+
+    public static @NotNull EntityAccessor of(@NotNull Class<?> entityClass) {
+        return ACCESSORS.computeIfAbsent(entityClass, EntityAccessor::new);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return state of tracked properties to compare later with changes(...)
+     */
+    public Object @NotNull [] snapshot(@NotNull Object entity) {
+        Object[] values = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Object value = get(entity, i);
+            values[i] = json[i] && value != null ? new JSONObject(value.toString()) : value;
+        }
+        return values;
+    }
+
+    /**
+     * @return changed properties since snapshot or null if nothing changed
+     */
+    public @Nullable Changes changes(@NotNull Object entity, Object @NotNull [] snapshot) {
+        Changes changes = null;
+        for (int i = 0; i < names.length; i++) {
+            Object value = get(entity, i);
+            Object change;
+            if (json[i]) {
+                change = value == null ? null : JsonChanges.diff((JSONObject) snapshot[i], (JSONObject) value);
+            } else {
+                change = Objects.equals(snapshot[i], value) ? null : new ValueChange(value);
+            }
+            if (change != null) {
+                if (changes == null) {
+                    changes = new Changes(this);
+                }
+                changes.changed.set(i);
+                changes.values[i] = change;
+            }
+        }
+        return changes;
+    }
+
+    private Object get(Object entity, int index) {
+        try {
+            return getters[index].invokeExact(entity);
+        } catch (Throwable ex) {
+            // computed getters may fail on detached entity, such properties are not tracked
+            return null;
+        }
+    }
+
+    @SneakyThrows
+    private void set(Object entity, int index, Object value) {
+        setters[index].invokeExact(entity, value);
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static @Nullable String getPropertyName(Method method) {
+        if (method.getParameterCount() != 0 || method.isBridge() || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3 && !name.equals("getClass")) {
+            return name.substring(3);
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            return name.substring(2);
+        }
+        return null;
+    }
+
+    private static boolean isTracked(Class<?> type) {
+        return ClassUtils.isPrimitiveOrWrapper(type)
+            || String.class.equals(type)
+            || type.isEnum()
+            || Number.class.isAssignableFrom(type)
+            || Date.class.isAssignableFrom(type)
+            || Temporal.class.isAssignableFrom(type);
+    }
+
+    // JSONObject and it's subclasses like JSON of jsonData
+    private static boolean isJson(Class<?> type) {
+        return JSONObject.class.isAssignableFrom(type);
+    }
+
+    private static Object copyJsonValue(Object value) {
+        if (value instanceof JSONObject jsonObject) {
+            return new JSONObject(jsonObject.toString());
+        }
+        if (value instanceof JSONArray jsonArray) {
+            return new JSONArray(jsonArray.toString());
+        }
+        return value;
+    }
+
+    /**
+     * Changed property values with field-index bitmap. Immutable, merge creates new instance, so readers may apply changes
+     * without lock
+     */
+    public static final class Changes {
+
+        private final EntityAccessor accessor;
+        private final BitSet changed = new BitSet();
+        // ValueChange or JsonChanges per changed property
+        private final Object[] values;
+
+        private Changes(EntityAccessor accessor) {
+            this.accessor = accessor;
+            this.values = new Object[accessor.size()];
+        }
+
+        /**
+         * @return new changes with values of this overridden by newer changes
+         */
+        public @NotNull Changes merge(@NotNull Changes changes) {
+            if (changes.accessor != accessor) {
+                throw new IllegalArgumentException("Unable to merge changes of different entity classes");
+            }
+            Changes merged = new Changes(accessor);
+            merged.changed.or(changed);
+            System.arraycopy(values, 0, merged.values, 0, values.length);
+            for (int i = changes.changed.nextSetBit(0); i >= 0; i = changes.changed.nextSetBit(i + 1)) {
+                merged.changed.set(i);
+                if (accessor.json[i] && values[i] instanceof JsonChanges jsonChanges) {
+                    merged.values[i] = jsonChanges.merge((JsonChanges) changes.values[i]);
+                } else {
+                    merged.values[i] = changes.values[i];
+                }
+            }
+            return merged;
+        }
+
+        public void apply(@NotNull Object entity) {
+            EntityAccessor target = entity.getClass() == accessor.entityClass ? accessor : EntityAccessor.of(entity.getClass());
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                int index = target == accessor ? i : target.indexOf(accessor.names[i]);
+                if (index < 0) {
+                    continue;
+                }
+                if (values[i] instanceof JsonChanges jsonChanges) {
+                    if (target.json[index] && target.get(entity, index) instanceof JSONObject jsonObject) {
+                        jsonChanges.apply(jsonObject);
+                    }
+                } else if (!target.json[index]) {
+                    target.set(entity, index, ((ValueChange) values[i]).value);
+                }
+            }
+        }
+    }
+
+    private record ValueChange(Object value) {
+
+    }
+
+    /**
+     * Changed and removed keys of json property
+     */
+    private record JsonChanges(Map<String, Object> put, Set<String> removed) {
+
+        private static @Nullable JsonChanges diff(@Nullable JSONObject snapshot, @NotNull JSONObject value) {
+            Map<String, Object> put = new LinkedHashMap<>();
+            Set<String> removed = new HashSet<>();
+            for (String key : value.keySet()) {
+                Object newValue = value.opt(key);
+                if (snapshot == null || !snapshot.has(key) || !String.valueOf(snapshot.opt(key)).equals(String.valueOf(newValue))) {
+                    put.put(key, copyJsonValue(newValue));
+                }
+            }
+            if (snapshot != null) {
+                for (String key : snapshot.keySet()) {
+                    if (!value.has(key)) {
+                        removed.add(key);
+                    }
+                }
+            }
+            return put.isEmpty() && removed.isEmpty() ? null : new JsonChanges(put, removed);
+        }
+
+        private JsonChanges merge(JsonChanges newer) {
+            Map<String, Object> put = new LinkedHashMap<>(this.put);
+            Set<String> removed = new HashSet<>(this.removed);
+            removed.removeAll(newer.put.keySet());
+            for (String key : newer.removed) {
+                put.remove(key);
+            }
+            put.putAll(newer.put);
+            removed.addAll(newer.removed);
+            return new JsonChanges(put, removed);
+        }
+
+        private void apply(JSONObject target) {
+            for (String key : removed) {
+                target.remove(key);
+            }
+            for (Map.Entry<String, Object> entry : put.entrySet()) {
+                target.put(entry.getKey(), copyJsonValue(entry.getValue()));
+            }
+        }
+    }
+}
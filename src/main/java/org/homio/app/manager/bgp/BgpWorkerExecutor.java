@@ -0,0 +1,213 @@
+package org.homio.app.manager.bgp;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Runs one-shot and blocking bgp tasks outside of scheduler pool. Scheduler only fires timer and hands task off to worker, so
+ * tasks which wait for locks, sleep or read process output not occupy scheduler threads. Uses virtual threads only on JDK 21+,
+ * on older jvm (i.e. JDK 17) falls back to bounded pool of platform threads. Tasks above pool size wait in queue
+ */
+@Log4j2
+public class BgpWorkerExecutor {
+
+    private final String name;
+    private final ExecutorService executor;
+    private final @Getter boolean virtualThreads;
+
+    private final @Nullable ThreadPoolExecutor platformExecutor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param name               - uses as worker thread name and statistic key prefix
+     * @param maxPlatformThreads - pool size if jvm not supports virtual threads
+     */
+    public BgpWorkerExecutor(@NotNull String name, int maxPlatformThreads) {
+        this.name = name;
+        ExecutorService virtualExecutor = createVirtualThreadExecutor(name);
+        this.virtualThreads = virtualExecutor != null;
+        if (virtualThreads) {
+            this.platformExecutor = null;
+            this.executor = virtualExecutor;
+        } else {
+            int threads = Math.max(1, maxPlatformThreads);
+            this.platformExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("bgp-" + name + "-%d").setDaemon(true).build());
+            this.platformExecutor.allowCoreThreadTimeOut(true);
+            this.executor = platformExecutor;
+        }
+    }
+
+    /**
+     * Run task on worker at startTime. Timer with delay fired by scheduler, task without delay submitted immediately
+     */
+    public <T> @NotNull ScheduledFuture<T> schedule(@NotNull TaskScheduler scheduler, @NotNull Runnable task, @NotNull Instant startTime) {
+        WorkerFuture<T> future = new WorkerFuture<>(task, startTime.toEpochMilli());
+        if (startTime.toEpochMilli() <= System.currentTimeMillis()) {
+            future.dispatch();
+        } else {
+            future.timer = scheduler.schedule(future::dispatch, startTime);
+        }
+        return future;
+    }
+
+    /**
+     * Run task on worker now. Uses by timing wheel to hand off due interval tasks
+     */
+    public void execute(@NotNull Runnable task) {
+        submitted.increment();
+        executor.execute(() -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        });
+    }
+
+    public void fillStatistic(@NotNull Map<String, Object> statistic) {
+        long count = completed.sum();
+        statistic.put(name + "Type", virtualThreads ? "virtual" : "platform-pool");
+        statistic.put(name + "Active", active.get());
+        if (platformExecutor != null) {
+            statistic.put(name + "PoolSize", platformExecutor.getMaximumPoolSize());
+            statistic.put(name + "Queued", platformExecutor.getQueue().size());
+        }
+        statistic.put(name + "Submitted", submitted.sum());
+        statistic.put(name + "Completed", count);
+        statistic.put(name + "AvgLatencyMs", count == 0 ? 0 : totalLatency.sum() / count);
+        statistic.put(name + "MaxLatencyMs", maxLatency.get());
+    }
+
+    private static @Nullable ExecutorService createVirtualThreadExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            log.info("Virtual threads not supported by jvm {}. Use bounded thread pool for bgp {}", Runtime.version(), name);
+            return null;
+        }
+    }
+
+    /**
+     * Future of scheduled timer and worker task. Cancel stops timer and interrupts running worker
+     */
+    public class WorkerFuture<T> implements ScheduledFuture<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final Runnable task;
+        private final long plannedTime;
+        private volatile ScheduledFuture<?> timer;
+        private volatile Future<?> worker;
+        // ms between planned start time and actual start on worker
+        private volatile @Getter @Nullable Long startLatency;
+
+        private WorkerFuture(Runnable task, long plannedTime) {
+            this.task = task;
+            this.plannedTime = plannedTime;
+        }
+
+        private void dispatch() {
+            if (result.isDone()) {
+                return;
+            }
+            submitted.increment();
+            try {
+                worker = executor.submit(this::run);
+            } catch (RejectedExecutionException ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        private void run() {
+            long latency = Math.max(0, System.currentTimeMillis() - plannedTime);
+            startLatency = latency;
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            active.incrementAndGet();
+            try {
+                // may be cancelled while waiting for worker
+                if (!result.isDone()) {
+                    task.run();
+                    result.complete(null);
+                }
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                active.decrementAndGet();
+                completed.increment();
+            }
+        }
+
+        @Override
+        public long getDelay(@NotNull TimeUnit unit) {
+            return unit.convert(plannedTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NotNull Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = result.cancel(mayInterruptIfRunning);
+            ScheduledFuture<?> timer = this.timer;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            Future<?> worker = this.worker;
+            if (worker != null) {
+                worker.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            return result.get();
+        }
+
+        @Override
+        public T get(long timeout, @NotNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+    }
+}
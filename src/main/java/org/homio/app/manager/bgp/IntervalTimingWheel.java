@@ -0,0 +1,279 @@
+package org.homio.app.manager.bgp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.log4j.Log4j2;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Hashed timing wheel for fixed-delay interval tasks. Single coarse ticker replaces per-task scheduler futures: insert and
+ * cancel are O(1) and due tasks are handed off to worker executor. Next run time rounded to nearest alignment boundary, so tasks
+ * with same interval converge to same tick and run together while average delay stays equal to interval. Optional jitter spreads
+ * first runs after startup. Time is measured by System.nanoTime(), so wall clock changes not shift deadlines
+ */
+@Log4j2
+public class IntervalTimingWheel {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long tickMillis;
+    private final long tickNanos;
+    private final long maxAlignmentNanos;
+    private final long jitterNanos;
+    private final Executor executor;
+    private final long startTime = System.nanoTime();
+    private final Slot[] wheel = new Slot[WHEEL_SIZE];
+    // last processed tick
+    private long currentTick;
+    private int size;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final AtomicLong maxLateness = new AtomicLong();
+
+    /**
+     * @param maxAlignment - max step of grid to round next run time to. Actual step is min(maxAlignment, interval)
+     * @param jitter       - max random delay of first run
+     */
+    public IntervalTimingWheel(@NotNull TaskScheduler scheduler, @NotNull Executor executor, @NotNull Duration tick,
+        @NotNull Duration maxAlignment, @NotNull Duration jitter) {
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.maxAlignmentNanos = maxAlignment.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        this.executor = executor;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Slot();
+        }
+        scheduler.scheduleAtFixedRate(this::tick, Duration.ofMillis(tickMillis));
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Run task first time after delay and then with fixed delay between end of previous and start of next run. Task which
+     * throws exception is not rescheduled anymore
+     */
+    public <T> @NotNull ScheduledFuture<T> scheduleWithFixedDelay(@NotNull Runnable task, @NotNull Duration delay, @NotNull Duration period) {
+        Timeout<T> timeout = new Timeout<>(task, period.toNanos());
+        long jitter = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(Math.min(jitterNanos, timeout.periodNanos) + 1) : 0;
+        insert(timeout, System.nanoTime() + delay.toNanos() + jitter);
+        return timeout;
+    }
+
+    public void fillStatistic(@NotNull Map<String, Object> statistic) {
+        statistic.put("wheelTickMs", tickMillis);
+        statistic.put("wheelTasks", size);
+        statistic.put("wheelDispatched", dispatched.sum());
+        statistic.put("wheelMaxLatenessMs", maxLateness.get());
+    }
+
+    private synchronized void insert(Timeout<?> timeout, long deadline) {
+        if (timeout.result.isDone()) {
+            return;
+        }
+        long tick = Math.max(currentTick + 1, (deadline - startTime + tickNanos - 1) / tickNanos);
+        timeout.deadline = startTime + tick * tickNanos;
+        timeout.remainingRounds = (tick - currentTick - 1) / WHEEL_SIZE;
+        wheel[(int) (tick & WHEEL_MASK)].add(timeout);
+        size++;
+    }
+
+    private synchronized void remove(Timeout<?> timeout) {
+        if (timeout.slot != null) {
+            timeout.slot.remove(timeout);
+            size--;
+        }
+    }
+
+    private void tick() {
+        List<Timeout<?>> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = (System.nanoTime() - startTime) / tickNanos;
+            // catch up ticks missed if ticker thread was busy
+            while (currentTick < targetTick) {
+                currentTick++;
+                Slot slot = wheel[(int) (currentTick & WHEEL_MASK)];
+                Timeout<?> timeout = slot.head;
+                while (timeout != null) {
+                    Timeout<?> next = timeout.next;
+                    if (timeout.remainingRounds <= 0) {
+                        slot.remove(timeout);
+                        size--;
+                        expired.add(timeout);
+                    } else {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        for (Timeout<?> timeout : expired) {
+            try {
+                executor.execute(timeout::run);
+                dispatched.increment();
+            } catch (RejectedExecutionException ex) {
+                log.warn("Unable to dispatch interval task. Executor rejected task");
+                timeout.result.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Round to nearest grid point instead of next one, so alignment never adds whole step to interval.
+     * Grid starts at wheel start time because nanoTime has no fixed origin
+     */
+    private long nextDeadline(long periodNanos) {
+        long now = System.nanoTime();
+        long alignment = Math.min(periodNanos, maxAlignmentNanos);
+        if (alignment <= tickNanos) {
+            return now + periodNanos;
+        }
+        long elapsed = now + periodNanos - startTime;
+        return startTime + Math.max(now - startTime, (elapsed + alignment / 2) / alignment * alignment);
+    }
+
+    private static class Slot {
+
+        private Timeout<?> head;
+        private Timeout<?> tail;
+
+        private void add(Timeout<?> timeout) {
+            timeout.slot = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout<?> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+    /**
+     * Periodic task handle. Never completes normally, same as periodic future of ScheduledExecutorService
+     */
+    private class Timeout<T> implements ScheduledFuture<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final Runnable task;
+        private final long periodNanos;
+        // System.nanoTime() based
+        private volatile long deadline;
+        // guarded by timeout lock, so cancel never interrupts thread which already left task
+        private Thread runner;
+        // guarded by wheel lock
+        private long remainingRounds;
+        private Slot slot;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+
+        private Timeout(Runnable task, long periodNanos) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+        }
+
+        private void run() {
+            if (result.isDone()) {
+                return;
+            }
+            maxLateness.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - deadline), Math::max);
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+                return;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // drop interrupt of cancel which came after task finished, worker thread is reused by other tasks
+                    if (result.isCancelled()) {
+                        Thread.interrupted();
+                    }
+                }
+            }
+            insert(this, nextDeadline(periodNanos));
+        }
+
+        @Override
+        public long getDelay(@NotNull TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(@NotNull Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = result.cancel(mayInterruptIfRunning);
+            remove(this);
+            if (cancelled && mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException, CancellationException {
+            return result.get();
+        }
+
+        @Override
+        public T get(long timeout, @NotNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+    }
+}
@@ -226,8 +226,10 @@ public class ContextImpl implements Context {
         this.contextNetwork = new ContextNetworkImpl(this, mhr, nhr);
         this.addon = new ContextAddonImpl(this, cacheService);
 
-        this.contextBGP.builder("flush-delayed-updates").intervalWithDelay(Duration.ofSeconds(30))
-                       .execute(cacheService::flushDelayedUpdates);
+        int delayedUpdatesMaxSize = setting().getEnvRequire("delayed-updates-max-size", Integer.class, 100, true);
+        Duration delayedUpdatesMaxAge = setting().getEnvRequire("delayed-updates-max-age", Duration.class, Duration.ofSeconds(30), true);
+        this.contextBGP.builder("flush-delayed-updates").intervalWithDelay(Duration.ofSeconds(1))
+                       .execute(() -> cacheService.flushDelayedUpdatesIfRequired(delayedUpdatesMaxSize, delayedUpdatesMaxAge));
     }
 
     @SneakyThrows
@@ -278,6 +280,7 @@ public class ContextImpl implements Context {
         event().runOnceOnInternetUp("app-version", this::updateAppNotificationBlock);
 
         event().fireEventIfNotSame("app-status", new StringType(Status.ONLINE.toString()));
+        bgp().registerThreadsPuller("cache", cacheService::pullStatistic);
         setting().listenValue(SystemClearCacheButtonSetting.class, "im-clear-cache", () -> {
             cacheService.clearCache();
             ui().toastr().success("Cache has been cleared successfully");
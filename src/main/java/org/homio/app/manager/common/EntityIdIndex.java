@@ -0,0 +1,136 @@
+package org.homio.app.manager.common;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import lombok.extern.log4j.Log4j2;
+import org.homio.api.entity.BaseEntity;
+import org.homio.api.entity.device.DeviceBaseEntity;
+import org.homio.app.repository.AbstractRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-memory entity ids by entity class, by id prefix and device ids by ieeeAddress. Ids of repository loaded once on first
+ * request and then maintained by hibernate insert/update/delete listeners, so lookups not hit db. All modifications are
+ * synchronized with loading, so entity removed while repository loading not stays in index
+ */
+@Log4j2
+public class EntityIdIndex {
+
+    // concrete entity class -> ids
+    private final Map<Class<?>, Set<String>> idsByClass = new ConcurrentHashMap<>();
+    // all indexed ids sorted, for prefix range lookup
+    private final NavigableSet<String> sortedIds = new ConcurrentSkipListSet<>();
+    // entity classes of repositories which ids already loaded
+    private final Set<Class<?>> loadedRepositories = ConcurrentHashMap.newKeySet();
+    // ieeeAddress -> device entity ids
+    private final Map<String, Set<String>> idsByIeeeAddress = new ConcurrentHashMap<>();
+    // device entityID -> indexed ieeeAddress
+    private final Map<String, String> ieeeAddressById = new ConcurrentHashMap<>();
+
+    public @NotNull Set<String> getEntityIDs(@NotNull Class<?> entityClass, @NotNull AbstractRepository<?> repository) {
+        Class<?> repositoryClass = repository.getEntityClass();
+        if (!loadedRepositories.contains(repositoryClass)) {
+            load(repository);
+        }
+        Set<String> result = new HashSet<>();
+        for (Map.Entry<Class<?>, Set<String>> entry : idsByClass.entrySet()) {
+            Class<?> aClass = entry.getKey();
+            if (entityClass.isAssignableFrom(aClass) && repositoryClass.isAssignableFrom(aClass)) {
+                result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param repository - repository which entity ids starts with prefix. Uses to load index on first request
+     */
+    public @NotNull Set<String> getEntityIDs(@NotNull String prefix, @NotNull AbstractRepository<?> repository) {
+        if (!loadedRepositories.contains(repository.getEntityClass())) {
+            load(repository);
+        }
+        return new HashSet<>(sortedIds.subSet(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * @param deviceRepository - repository of all devices. Uses to load index on first request
+     */
+    public @NotNull Set<String> getDeviceEntityIDs(@NotNull String ieeeAddress, @NotNull AbstractRepository<?> deviceRepository) {
+        if (!loadedRepositories.contains(deviceRepository.getEntityClass())) {
+            load(deviceRepository);
+        }
+        Set<String> ids = idsByIeeeAddress.get(ieeeAddress);
+        return ids == null ? new HashSet<>() : new HashSet<>(ids);
+    }
+
+    public synchronized void add(@NotNull BaseEntity entity) {
+        String entityID = entity.getEntityID();
+        if (entityID != null) {
+            idsByClass.computeIfAbsent(entity.getClass(), c -> ConcurrentHashMap.newKeySet()).add(entityID);
+            sortedIds.add(entityID);
+            update(entity);
+        }
+    }
+
+    /**
+     * Re-index entity fields which may be changed, i.e. device ieeeAddress
+     */
+    public synchronized void update(@NotNull BaseEntity entity) {
+        if (entity instanceof DeviceBaseEntity device && device.getEntityID() != null) {
+            indexIeeeAddress(device.getEntityID(), device.getIeeeAddress());
+        }
+    }
+
+    public synchronized void remove(@NotNull BaseEntity entity) {
+        String entityID = entity.getEntityID();
+        if (entityID != null) {
+            Set<String> ids = idsByClass.get(entity.getClass());
+            if (ids != null) {
+                ids.remove(entityID);
+            }
+            sortedIds.remove(entityID);
+            indexIeeeAddress(entityID, null);
+        }
+    }
+
+    public synchronized void clear() {
+        loadedRepositories.clear();
+        idsByClass.clear();
+        sortedIds.clear();
+        idsByIeeeAddress.clear();
+        ieeeAddressById.clear();
+    }
+
+    private synchronized void indexIeeeAddress(@NotNull String entityID, @Nullable String ieeeAddress) {
+        String prevIeeeAddress = ieeeAddress == null ? ieeeAddressById.remove(entityID) : ieeeAddressById.put(entityID, ieeeAddress);
+        if (Objects.equals(prevIeeeAddress, ieeeAddress)) {
+            return;
+        }
+        if (prevIeeeAddress != null) {
+            Set<String> ids = idsByIeeeAddress.get(prevIeeeAddress);
+            if (ids != null && ids.remove(entityID) && ids.isEmpty()) {
+                idsByIeeeAddress.remove(prevIeeeAddress);
+            }
+        }
+        if (ieeeAddress != null) {
+            idsByIeeeAddress.computeIfAbsent(ieeeAddress, a -> ConcurrentHashMap.newKeySet()).add(entityID);
+        }
+    }
+
+    private synchronized void load(@NotNull AbstractRepository<?> repository) {
+        if (loadedRepositories.contains(repository.getEntityClass())) {
+            return;
+        }
+        for (BaseEntity entity : repository.listAll()) {
+            add(entity);
+        }
+        loadedRepositories.add(repository.getEntityClass());
+        log.debug("Loaded entity ids for: {}", repository.getEntityClass().getSimpleName());
+    }
+}
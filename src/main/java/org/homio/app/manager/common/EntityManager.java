@@ -1,15 +1,11 @@
 package org.homio.app.manager.common;
 
 import static org.homio.app.manager.CacheService.CACHE_CLASS_BY_TYPE;
-import static org.homio.app.manager.CacheService.ENTITY_IDS_BY_CLASS_NAME;
 import static org.homio.app.manager.CacheService.ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI;
 
 import jakarta.persistence.Entity;
-import java.util.List;
 import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import lombok.SneakyThrows;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import org.homio.api.entity.BaseEntity;
 import org.homio.api.entity.EntityFieldMetadata;
@@ -23,6 +19,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class EntityManager {
 
+    private final @Getter EntityIdIndex entityIdIndex = new EntityIdIndex();
+
     @Cacheable(ENTITY_WITH_FETCH_LAZY_IGNORE_NOT_UI)
     public <T extends BaseEntity> T getEntityWithFetchLazy(String entityID) {
         AbstractRepository repository = ContextImpl.getRepository(entityID);
@@ -42,21 +40,8 @@ public class EntityManager {
         return null;
     }
 
-    @SneakyThrows
-    @Cacheable(ENTITY_IDS_BY_CLASS_NAME)
     public @NotNull Set<String> getEntityIDsByEntityClassFullName(Class<BaseEntity> entityClass, AbstractRepository repository) {
-        Predicate<BaseEntity> filter = baseEntity -> true;
-
-        // in case we not found repository, but found potential repository - we should filter
-        if (!repository.getEntityClass().equals(entityClass)) {
-            filter = baseEntity -> entityClass.isAssignableFrom(baseEntity.getClass());
-        }
-
-        List<BaseEntity> list = repository.listAll();
-        return list.stream()
-                .filter(filter)
-                .map(BaseEntity::getEntityID)
-                .collect(Collectors.toSet());
+        return entityIdIndex.getEntityIDs(entityClass, repository);
     }
 
     public <T extends BaseEntity> @Nullable T getEntityNoCache(String entityID) {
@@ -34,9 +34,11 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -59,7 +61,9 @@ import org.homio.api.model.HasEntityIdentifier;
 import org.homio.api.service.EntityService.WatchdogService;
 import org.homio.api.util.CommonUtils;
 import org.homio.app.json.BgpProcessResponse;
+import org.homio.app.manager.bgp.BgpWorkerExecutor;
 import org.homio.app.manager.bgp.InternetAvailabilityBgpService;
+import org.homio.app.manager.bgp.IntervalTimingWheel;
 import org.homio.app.manager.bgp.WatchdogBgpService;
 import org.homio.app.manager.common.ContextImpl;
 import org.homio.app.utils.CollectionUtils.LastBytesBuffer;
@@ -80,6 +84,12 @@ public class ContextBGPImpl implements ContextBGP {
     @Getter
     private final @Accessors(fluent = true) ContextImpl context;
     private final ThreadPoolTaskScheduler taskScheduler;
+    // if not null - one-shot tasks run on workers and scheduler only fires timers
+    private final @Nullable BgpWorkerExecutor workerExecutor;
+    // long-living tasks which mostly wait for events, e.g. workspace scripts. Always run outside of scheduler pool
+    private final BgpWorkerExecutor scriptExecutor;
+    // if not null - fixed delay interval tasks scheduled by timing wheel instead of own scheduler future
+    private final @Nullable IntervalTimingWheel intervalWheel;
     private final Map<String, ThrowingRunnable<Exception>> lowPriorityRequests = new ConcurrentHashMap<>();
 
     @Getter
@@ -104,6 +114,11 @@ public class ContextBGPImpl implements ContextBGP {
     public ContextBGPImpl(ContextImpl context, ThreadPoolTaskScheduler taskScheduler) {
         this.context = context;
         this.taskScheduler = taskScheduler;
+        this.workerExecutor = context.setting().getEnvRequire("bgp-worker-threads", Boolean.class, false, true)
+            ? new BgpWorkerExecutor("worker", context.setting().getEnvRequire("bgp-worker-platform-threads", Integer.class, 16, true)) : null;
+        this.scriptExecutor = new BgpWorkerExecutor("script",
+            context.setting().getEnvRequire("bgp-script-platform-threads", Integer.class, 32, true));
+        this.intervalWheel = createIntervalWheel();
         this.internetAvailabilityService = new InternetAvailabilityBgpService(context, this);
         this.watchdogBgpService = new WatchdogBgpService(this);
     }
@@ -134,6 +149,17 @@ public class ContextBGPImpl implements ContextBGP {
         for (ContextBGPImpl.ThreadContextImpl<?> context : schedulers.values()) {
             response.add(context);
         }
+        ScheduledThreadPoolExecutor executor = taskScheduler.getScheduledThreadPoolExecutor();
+        response.getStatistic().put("schedulerPoolSize", executor.getCorePoolSize());
+        response.getStatistic().put("schedulerActive", executor.getActiveCount());
+        response.getStatistic().put("schedulerQueue", executor.getQueue().size());
+        if (workerExecutor != null) {
+            workerExecutor.fillStatistic(response.getStatistic());
+        }
+        scriptExecutor.fillStatistic(response.getStatistic());
+        if (intervalWheel != null) {
+            intervalWheel.fillStatistic(response.getStatistic());
+        }
         return response;
     }
 
@@ -291,17 +317,35 @@ public class ContextBGPImpl implements ContextBGP {
         if (delay != null && delay.toMillis() > 100) {
             startDate = new Date(System.currentTimeMillis() + delay.toMillis());
         }
-        taskScheduler.schedule(() -> {
+        Runnable task = () -> {
             try {
                 runnable.run();
             } catch (Exception ex) {
                 throw new RuntimeException(ex);
             }
-        }, startDate.toInstant());
+        };
+        if (workerExecutor != null) {
+            workerExecutor.schedule(taskScheduler, task, startDate.toInstant());
+        } else {
+            taskScheduler.schedule(task, startDate.toInstant());
+        }
     }
 
     @Override
     public <T> @NotNull ScheduleBuilder<T> builder(@NotNull String name) {
+        return createBuilder(name, workerExecutor);
+    }
+
+    /**
+     * Same as builder() but one-shot task always runs on own worker thread (virtual on JDK 21+, cached platform thread pool on
+     * older jvm) instead of scheduler pool.
+     * Uses for tasks which spend most of time waiting for locks/events, so thousands of them not occupy scheduler threads
+     */
+    public <T> @NotNull ScheduleBuilder<T> scriptBuilder(@NotNull String name) {
+        return createBuilder(name, scriptExecutor);
+    }
+
+    private <T> @NotNull ScheduleBuilder<T> createBuilder(@NotNull String name, @Nullable BgpWorkerExecutor singleExecutor) {
         ThreadContextImpl<T> context = new ThreadContextImpl<>();
         context.name = name;
         context.scheduleType = ScheduleType.SINGLE;
@@ -318,7 +362,12 @@ public class ContextBGPImpl implements ContextBGP {
                             startDate = new Date(System.currentTimeMillis() + context.delay.toMillis());
                         }
                         if (context.scheduleType == ScheduleType.SINGLE) {
+                            if (singleExecutor != null) {
+                                return singleExecutor.schedule(taskScheduler, runnable, startDate.toInstant());
+                            }
                             return taskScheduler.schedule(runnable, startDate.toInstant());
+                        } else if (intervalWheel != null && context.period.toMillis() >= 2 * intervalWheel.getTickMillis()) {
+                            return intervalWheel.scheduleWithFixedDelay(runnable, context.delay == null ? Duration.ZERO : context.delay, context.period);
                         } else {
                             return taskScheduler.scheduleWithFixedDelay(runnable, startDate.toInstant(), context.period);
                         }
@@ -633,6 +682,7 @@ public class ContextBGPImpl implements ContextBGP {
 
         Runnable runnable =
                 () -> {
+                    long startTime = System.currentTimeMillis();
                     try {
                         threadContext.runCount++;
                         threadContext.state = "TITLE.STARTED";
@@ -673,6 +723,8 @@ public class ContextBGPImpl implements ContextBGP {
                         if (threadContext.cancelOnError || threadContext.scheduleType == ScheduleType.SINGLE) {
                             threadContext.processFinished();
                         }
+                    } finally {
+                        threadContext.lastDuration = System.currentTimeMillis() - startTime;
                     }
                 };
         threadContext.scheduledFuture = (ScheduledFuture<T>) scheduleHandler.apply(runnable);
@@ -780,6 +832,7 @@ public class ContextBGPImpl implements ContextBGP {
         private boolean stopped;
         @Setter
         private int runCount;
+        private volatile Long lastDuration;
         @Setter
         private boolean cancelOnError = true;
         private Map<String, ThrowingBiFunction<T, T, Boolean, Exception>> valueListeners;
@@ -797,6 +850,13 @@ public class ContextBGPImpl implements ContextBGP {
             return Duration.ofMillis(scheduledFuture.getDelay(TimeUnit.MILLISECONDS)).truncatedTo(ChronoUnit.SECONDS).toString().substring(2);
         }
 
+        /**
+         * @return ms between planned and actual start of task on worker thread
+         */
+        public @Nullable Long getStartLatency() {
+            return scheduledFuture instanceof BgpWorkerExecutor.WorkerFuture<?> future ? future.getStartLatency() : null;
+        }
+
         @Override
         public Object getMetadata(String key) {
             return metadata.get(key);
@@ -1052,6 +1112,17 @@ public class ContextBGPImpl implements ContextBGP {
         } catch (Exception ignore) {}
     }
 
+    private @Nullable IntervalTimingWheel createIntervalWheel() {
+        if (!context.setting().getEnvRequire("bgp-timing-wheel", Boolean.class, true, true)) {
+            return null;
+        }
+        Duration tick = context.setting().getEnvRequire("bgp-timing-wheel-tick", Duration.class, Duration.ofMillis(500), true);
+        Duration alignment = context.setting().getEnvRequire("bgp-timing-wheel-alignment", Duration.class, Duration.ofSeconds(5), true);
+        Duration jitter = context.setting().getEnvRequire("bgp-timing-wheel-jitter", Duration.class, Duration.ZERO, true);
+        Executor executor = workerExecutor == null ? taskScheduler : workerExecutor::execute;
+        return new IntervalTimingWheel(taskScheduler, executor, tick, alignment, jitter);
+    }
+
     private ThreadContext<Void> createPingService() {
         return context
             .bgp()
@@ -9,7 +9,10 @@ import jakarta.persistence.EntityManagerFactory;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -17,16 +20,22 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.ClassUtils;
@@ -62,10 +71,14 @@ import org.homio.app.model.var.WorkspaceVariable;
 import org.homio.app.service.mem.InMemoryDB;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.boot.convert.DurationStyle;
 
 @Log4j2
 public class ContextEventImpl implements ContextEvent {
 
+    // max queued events per shard
+    private static final int EVENT_QUEUE_CAPACITY = 10_000;
+
     @Getter
     private final EntityListener entityUpdateListeners = new EntityListener();
 
@@ -78,8 +91,20 @@ public class ContextEventImpl implements ContextEvent {
     private final @Getter Set<OptionModel> events = new HashSet<>();
     private final @Getter Map<String, State> lastValues = new ConcurrentHashMap<>();
 
+    // discriminator -> key -> listener
     private final Map<String, Map<String, Consumer<State>>> eventListeners = new ConcurrentHashMap<>();
+    // inverted index: key -> discriminator -> listener
+    private final Map<String, Map<String, Consumer<State>>> keyListeners = new ConcurrentHashMap<>();
     private final Map<String, Map<Pattern, BiConsumer<String, State>>> eventRegexpListeners = new ConcurrentHashMap<>();
+    // key -> regexp listeners which matches key. Evaluated once per key. Replaced (not cleared) after regexp listeners changed,
+    // so dispatch which computes match from old listeners never stores it into actual cache
+    private volatile Map<String, List<RegexpListener>> regexpMatches = new ConcurrentHashMap<>();
+    private final Map<String, ListenerStatistic> listenerStatistics = new ConcurrentHashMap<>();
+    // opt-in latest-value-wins windows (ms) by key/pattern
+    private final Map<String, Long> coalesceKeys = new ConcurrentHashMap<>();
+    private final Map<Pattern, Long> coalescePatterns = new ConcurrentHashMap<>();
+    // resolved coalesce window per key, -1 if key not coalesced. Replaced after policies changed same as regexpMatches
+    private volatile Map<String, Long> coalesceWindows = new ConcurrentHashMap<>();
 
     @Getter
     private final List<BiConsumer<String, Object>> globalEvenListeners = new ArrayList<>();
@@ -88,19 +113,32 @@ public class ContextEventImpl implements ContextEvent {
     private final ContextImpl context;
 
     private final BlockingQueue<EntityUpdate> entityUpdatesQueue = new LinkedBlockingQueue<>();
-    private final BlockingQueue<Event> eventQueue = new LinkedBlockingQueue<>();
+    // events with same key always handled by same shard to keep order
+    private final EventShard[] eventShards;
+    @Getter
+    @Setter
+    private volatile @NotNull OverflowStrategy overflowStrategy = OverflowStrategy.Merge;
 
     public ContextEventImpl(ContextImpl context, EntityManagerFactory entityManagerFactory) {
-        this.context = context;
+        this(context);
         registerEntityListeners(entityManagerFactory);
     }
 
+    // without hibernate entity listeners
+    ContextEventImpl(ContextImpl context) {
+        this.context = context;
+        this.eventShards = new EventShard[Math.max(2, Runtime.getRuntime().availableProcessors())];
+        for (int i = 0; i < eventShards.length; i++) {
+            eventShards[i] = new EventShard("EventHandler-" + i);
+        }
+    }
+
     @Override
     public synchronized void removeEvents(String discriminator, String... additionalKeys) {
-        eventListeners.remove(discriminator);
+        removeDiscriminatorListeners(discriminator);
         lastValues.remove(discriminator);
         for (String additionalKey : additionalKeys) {
-            eventListeners.remove(additionalKey);
+            removeDiscriminatorListeners(additionalKey);
             lastValues.remove(additionalKey);
         }
     }
@@ -114,6 +152,7 @@ public class ContextEventImpl implements ContextEvent {
                 eventListeners.remove(discriminator);
             }
         }
+        removeKeyListener(key, discriminator);
     }
 
     @Override
@@ -126,8 +165,9 @@ public class ContextEventImpl implements ContextEvent {
     }
 
     @Override
-    public ContextEvent addEventListener(String key, String discriminator, Consumer<State> listener) {
+    public synchronized ContextEvent addEventListener(String key, String discriminator, Consumer<State> listener) {
         eventListeners.computeIfAbsent(discriminator, d -> new ConcurrentHashMap<>()).put(key, listener);
+        keyListeners.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(discriminator, listener);
         return this;
     }
 
@@ -139,6 +179,7 @@ public class ContextEventImpl implements ContextEvent {
             }
         }
         eventRegexpListeners.computeIfAbsent(discriminator, d -> new ConcurrentHashMap<>()).put(regexp, listener);
+        regexpMatches = new ConcurrentHashMap<>();
         return this;
     }
 
@@ -152,6 +193,45 @@ public class ContextEventImpl implements ContextEvent {
         return fireEvent(key, value, false);
     }
 
+    /**
+     * Fire many events at once. Events are grouped per shard and enqueued as single batch, so every shard handles own part
+     * in one pass. Order of events with same key is preserved
+     */
+    public void fireEvents(@NotNull List<Entry<String, State>> events) {
+        List<List<Event>> batches = new ArrayList<>(eventShards.length);
+        for (int i = 0; i < eventShards.length; i++) {
+            batches.add(null);
+        }
+        long firedAt = System.nanoTime();
+        for (Entry<String, State> entry : events) {
+            String key = entry.getKey();
+            if (StringUtils.isEmpty(key)) {
+                throw new IllegalArgumentException("Unable to fire event with empty key");
+            }
+            if (entry.getValue() != null) {
+                lastValues.put(key, entry.getValue());
+            }
+            int shardIndex = getShardIndex(key);
+            Event event = new Event(key, entry.getValue(), firedAt);
+            long window = getCoalesceWindow(key);
+            if (window >= 0) {
+                eventShards[shardIndex].coalesce(event, window);
+            } else {
+                List<Event> batch = batches.get(shardIndex);
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.set(shardIndex, batch);
+                }
+                batch.add(event);
+            }
+        }
+        for (int i = 0; i < eventShards.length; i++) {
+            if (batches.get(i) != null) {
+                eventShards[i].offer(batches.get(i));
+            }
+        }
+    }
+
     public void addEvent(String key) {
         OptionModel optionModel = OptionModel.of(key, Lang.getServerMessage(key));
         this.events.add(optionModel);
@@ -237,16 +317,51 @@ public class ContextEventImpl implements ContextEvent {
 
     @Override
     public int getEventCount(@NotNull String key) {
-        int count = 0;
-        for (Map<String, Consumer<State>> item : eventListeners.values()) {
-            if (item.containsKey(key)) {
-                count++;
-            }
+        return keyListeners.getOrDefault(key, emptyMap()).size();
+    }
+
+    /**
+     * Deliver at most one event per window for key. Intermediate values are collapsed and listeners receive only the latest
+     * one. Zero window collapses only values which still waiting in queue
+     */
+    public void setCoalescePolicy(@NotNull String key, @NotNull Duration window) {
+        coalesceKeys.put(key, window.toMillis());
+        coalesceWindows = new ConcurrentHashMap<>();
+    }
+
+    public void setCoalescePolicy(@NotNull Pattern pattern, @NotNull Duration window) {
+        coalescePatterns.put(pattern, window.toMillis());
+        coalesceWindows = new ConcurrentHashMap<>();
+    }
+
+    public void removeCoalescePolicy(@NotNull String key) {
+        coalesceKeys.remove(key);
+        coalesceWindows = new ConcurrentHashMap<>();
+    }
+
+    public void removeCoalescePolicy(@NotNull Pattern pattern) {
+        coalescePatterns.remove(pattern);
+        coalesceWindows = new ConcurrentHashMap<>();
+    }
+
+    public @NotNull EventStatistic getStatistic() {
+        EventStatistic statistic = new EventStatistic();
+        for (EventShard shard : eventShards) {
+            statistic.queueSize += shard.queue.size();
+            statistic.handled += shard.handled.sum();
+            statistic.totalLatency += shard.totalLatency.sum();
+            statistic.maxLatency = Math.max(statistic.maxLatency, shard.maxLatency.get());
+            statistic.dropped += shard.dropped.sum();
+            statistic.merged += shard.merged.sum();
         }
-        return count;
+        statistic.listeners = listenerStatistics;
+        return statistic;
     }
 
     public void onContextCreated() throws Exception {
+        overflowStrategy = context.setting().getEnvRequire("event-overflow-strategy", OverflowStrategy.class, OverflowStrategy.Merge, true);
+        // 'regexp=window' pairs separated by ';', i.e.: 'mqtt-.*=500ms;z2m-.*=1s'
+        loadCoalescePolicies(context.setting().getEnvRequire("event-coalesce", String.class, "", true));
         // execute all updates in thread
         new Thread(() -> {
             while (true) {
@@ -258,31 +373,129 @@ public class ContextEventImpl implements ContextEvent {
                 }
             }
         }, "EntityChangeHandler").start();
-        // event handler
-        new Thread(() -> {
-            while (true) {
+        startEventShards();
+        context.bgp().registerThreadsPuller("event-handler", threadPuller -> {
+            for (EventShard shard : eventShards) {
+                long handled = shard.handled.sum();
+                threadPuller.addThread(shard.name, "Queue: %s. Handled: %s. Merged: %s. Dropped: %s. Latency avg/max: %sms/%sms".formatted(
+                        shard.queue.size(), handled, shard.merged.sum(), shard.dropped.sum(),
+                        handled == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(shard.totalLatency.sum() / handled),
+                        TimeUnit.NANOSECONDS.toMillis(shard.maxLatency.get())), shard.creationTime, "RUNNING", null,
+                    shard == eventShards[0] ? getSlowestListeners() : null);
+            }
+        });
+    }
+
+    void startEventShards() {
+        for (EventShard shard : eventShards) {
+            shard.start();
+        }
+    }
+
+    private void loadCoalescePolicies(String policies) {
+        for (String policy : policies.split(";")) {
+            int index = policy.lastIndexOf('=');
+            if (index > 0) {
                 try {
-                    Event event = eventQueue.take();
-                    for (Map<String, Consumer<State>> eventListenerMap : eventListeners.values()) {
-                        Consumer<State> listener = eventListenerMap.get(event.key);
-                        if (listener != null) {
-                            listener.accept(event.value);
-                        }
-                    }
-                    for (Map<Pattern, BiConsumer<String, State>> entry : eventRegexpListeners.values()) {
-                        for (Entry<Pattern, BiConsumer<String, State>> options : entry.entrySet()) {
-                            if (options.getKey().matcher(event.key).matches()) {
-                                options.getValue().accept(event.key, event.value);
-                            }
-                        }
-                    }
-                    globalEvenListeners.forEach(l -> l.accept(event.key, event.value));
-                    context.fireAllLock(lockManager -> lockManager.signalAll(event.key, event.value));
+                    setCoalescePolicy(Pattern.compile(policy.substring(0, index).trim()),
+                        DurationStyle.detectAndParse(policy.substring(index + 1).trim()));
                 } catch (Exception ex) {
-                    log.error("Error while execute event handler", ex);
+                    log.error("Wrong event coalesce policy: '{}'. {}", policy, CommonUtils.getErrorMessage(ex));
+                }
+            } else if (!policy.isBlank()) {
+                log.error("Wrong event coalesce policy: '{}'. Expected format: 'regexp=window'", policy);
+            }
+        }
+    }
+
+    private void dispatchEvent(Event event) {
+        Map<String, Consumer<State>> listeners = keyListeners.get(event.key);
+        if (listeners != null) {
+            for (Entry<String, Consumer<State>> entry : listeners.entrySet()) {
+                invokeListener(entry.getKey(), () -> entry.getValue().accept(event.value));
+            }
+        }
+        if (!eventRegexpListeners.isEmpty()) {
+            for (RegexpListener regexpListener : regexpMatches.computeIfAbsent(event.key, this::findRegexpListeners)) {
+                invokeListener(regexpListener.discriminator, () -> regexpListener.listener.accept(event.key, event.value));
+            }
+        }
+        for (BiConsumer<String, Object> globalEvenListener : globalEvenListeners) {
+            invokeListener("global", () -> globalEvenListener.accept(event.key, event.value));
+        }
+        context.fireAllLock(lockManager -> lockManager.signalAll(event.key, event.value));
+    }
+
+    private void invokeListener(String discriminator, Runnable handler) {
+        long started = System.nanoTime();
+        try {
+            handler.run();
+        } catch (Exception ex) {
+            log.error("Error while execute event handler: {}", discriminator, ex);
+        }
+        listenerStatistics.computeIfAbsent(discriminator, d -> new ListenerStatistic()).add(System.nanoTime() - started);
+    }
+
+    private List<RegexpListener> findRegexpListeners(String key) {
+        List<RegexpListener> result = new ArrayList<>();
+        for (Entry<String, Map<Pattern, BiConsumer<String, State>>> entry : eventRegexpListeners.entrySet()) {
+            for (Entry<Pattern, BiConsumer<String, State>> options : entry.getValue().entrySet()) {
+                if (options.getKey().matcher(key).matches()) {
+                    result.add(new RegexpListener(entry.getKey(), options.getValue()));
                 }
             }
-        }, "EventHandler").start();
+        }
+        return result;
+    }
+
+    private String getSlowestListeners() {
+        return listenerStatistics.entrySet().stream()
+                                 .sorted((o1, o2) -> Long.compare(o2.getValue().totalTime.sum(), o1.getValue().totalTime.sum()))
+                                 .limit(10)
+                                 .map(e -> "%s: %s calls, total %sms, max %sms".formatted(e.getKey(), e.getValue().count.sum(),
+                                     TimeUnit.NANOSECONDS.toMillis(e.getValue().totalTime.sum()),
+                                     TimeUnit.NANOSECONDS.toMillis(e.getValue().maxTime.get())))
+                                 .collect(Collectors.joining("\n"));
+    }
+
+    int getShardIndex(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % eventShards.length;
+    }
+
+    private long getCoalesceWindow(String key) {
+        if (coalesceKeys.isEmpty() && coalescePatterns.isEmpty()) {
+            return -1;
+        }
+        return coalesceWindows.computeIfAbsent(key, k -> {
+            Long window = coalesceKeys.get(k);
+            if (window == null) {
+                for (Entry<Pattern, Long> entry : coalescePatterns.entrySet()) {
+                    if (entry.getKey().matcher(k).matches()) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            return window == null ? -1L : window;
+        });
+    }
+
+    private void removeDiscriminatorListeners(String discriminator) {
+        Map<String, Consumer<State>> map = eventListeners.remove(discriminator);
+        if (map != null) {
+            for (String key : map.keySet()) {
+                removeKeyListener(key, discriminator);
+            }
+        }
+    }
+
+    private void removeKeyListener(String key, String discriminator) {
+        Map<String, Consumer<State>> map = keyListeners.get(key);
+        if (map != null) {
+            map.remove(discriminator);
+            if (map.isEmpty()) {
+                keyListeners.remove(key);
+            }
+        }
     }
 
     private @NotNull ContextEventImpl fireEvent(@NotNull String key, @Nullable State value, boolean compareValues) {
@@ -304,7 +517,13 @@ public class ContextEventImpl implements ContextEvent {
             }
             lastValues.put(key, value);
         }
-        eventQueue.add(new Event(key, value));
+        EventShard shard = eventShards[getShardIndex(key)];
+        long window = getCoalesceWindow(key);
+        if (window >= 0) {
+            shard.coalesce(new Event(key, value, System.nanoTime()), window);
+        } else {
+            shard.offer(new Event(key, value, System.nanoTime()));
+        }
     }
 
     private void registerEntityListeners(EntityManagerFactory entityManagerFactory) {
@@ -334,6 +553,9 @@ public class ContextEventImpl implements ContextEvent {
             @Override
             public void onPostInsert(PostInsertEvent event) {
                 super.onPostInsert(event);
+                if (event.getEntity() instanceof BaseEntity baseEntity) {
+                    context.db().getEntityIdIndex().add(baseEntity);
+                }
                 updateCacheEntity(context, event.getEntity(), ItemAction.Insert);
                 entityUpdatesQueue.add(new EntityUpdate(event.getEntity(), EntityUpdateAction.Insert));
             }
@@ -346,8 +568,14 @@ public class ContextEventImpl implements ContextEvent {
                 EventSource eventSource = event.getSession();
                 EntityEntry entry = eventSource.getPersistenceContextInternal().getEntry(entity);
                 if (org.hibernate.engine.spi.Status.DELETED == entry.getStatus()) {
+                    if (entity instanceof BaseEntity baseEntity) {
+                        context.db().getEntityIdIndex().remove(baseEntity);
+                    }
                     entityUpdatesQueue.add(new EntityUpdate(event.getEntity(), EntityUpdateAction.Delete));
                 } else {
+                    if (entity instanceof BaseEntity baseEntity) {
+                        context.db().getEntityIdIndex().update(baseEntity);
+                    }
                     updateCacheEntity(context, event.getEntity(), ItemAction.Update);
                     entityUpdatesQueue.add(new EntityUpdate(event.getEntity(), EntityUpdateAction.Update));
                 }
@@ -360,6 +588,7 @@ public class ContextEventImpl implements ContextEvent {
                 super.onPostDelete(event);
                 if (event.getEntity() instanceof BaseEntity baseEntity) {
                     baseEntity.setContext(context);
+                    context.db().getEntityIdIndex().remove(baseEntity);
                     updateCacheEntity(context, event.getEntity(), ItemAction.Remove);
                 }
                 entityUpdatesQueue.add(new EntityUpdate(event.getEntity(), EntityUpdateAction.Delete));
@@ -525,7 +754,184 @@ public class ContextEventImpl implements ContextEvent {
         }
     }
 
-    private record Event(String key, State value) {}
+    private record Event(String key, State value, long firedAt) {}
+
+    // marker which says that shard has to deliver pending coalesced value for key
+    private record CoalesceTicket(String key, long window) {}
+
+    public enum OverflowStrategy {
+        // collapse events for same key into latest value until queue drained
+        Merge,
+        // reject new event
+        DropNewest,
+        // remove oldest queued event to make room for new one
+        DropOldest
+    }
+
+    private record RegexpListener(String discriminator, BiConsumer<String, State> listener) {}
+
+    @Getter
+    public static class EventStatistic {
+
+        private int queueSize;
+        private long handled;
+        private long totalLatency;
+        private long maxLatency;
+        private long dropped;
+        private long merged;
+        private Map<String, ListenerStatistic> listeners;
+    }
+
+    @Getter
+    public static class ListenerStatistic {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final AtomicLong maxTime = new AtomicLong();
+
+        private void add(long time) {
+            count.increment();
+            totalTime.add(time);
+            maxTime.accumulateAndGet(time, Math::max);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private class EventShard {
+
+        private final String name;
+        // contains Event, List<Event> or CoalesceTicket
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(EVENT_QUEUE_CAPACITY);
+        // latest not delivered value of coalesced keys
+        private final Map<String, Event> pending = new ConcurrentHashMap<>();
+        // latest value of keys which not fit into full queue
+        private final Map<String, Event> overflow = new ConcurrentHashMap<>();
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder merged = new LongAdder();
+        private final LongAdder totalLatency = new LongAdder();
+        private final AtomicLong maxLatency = new AtomicLong();
+        // accessed only from shard thread
+        private final Map<String, Long> lastDelivered = new HashMap<>();
+        private final PriorityQueue<Deferred> deferred = new PriorityQueue<>(Comparator.comparingLong(Deferred::due));
+        private Date creationTime;
+
+        private void offer(Event event) {
+            // keep key order: while key has overflow value all new values must be merged into it
+            if (!overflow.isEmpty() && overflow.containsKey(event.key)) {
+                mergeOverflow(event);
+            } else if (!queue.offer(event)) {
+                switch (overflowStrategy) {
+                    case Merge -> mergeOverflow(event);
+                    case DropNewest -> dropped.increment();
+                    case DropOldest -> dropOldest(event);
+                }
+            }
+        }
+
+        private void dropOldest(Event event) {
+            Object oldest = queue.poll();
+            if (oldest instanceof CoalesceTicket ticket) {
+                // ticket is not an event. Keep pending value of key and deliver it same way as overflow
+                mergeOverflow(pending.remove(ticket.key));
+            } else if (oldest instanceof List<?> batch) {
+                dropped.add(batch.size());
+            } else if (oldest != null) {
+                dropped.increment();
+            }
+            if (!queue.offer(event)) {
+                dropped.increment();
+            }
+        }
+
+        private void offer(List<Event> batch) {
+            if (!overflow.isEmpty() || !queue.offer(batch)) {
+                for (Event event : batch) {
+                    offer(event);
+                }
+            }
+        }
+
+        private void coalesce(Event event, long window) {
+            if (pending.put(event.key, event) != null) {
+                merged.increment();
+            } else if (!queue.offer(new CoalesceTicket(event.key, window))) {
+                // no room for ticket, deliver value same way as overflow
+                mergeOverflow(pending.remove(event.key));
+            }
+        }
+
+        private void mergeOverflow(@Nullable Event event) {
+            if (event != null && overflow.put(event.key, event) != null) {
+                merged.increment();
+            }
+        }
+
+        private void start() {
+            creationTime = new Date();
+            new Thread(() -> {
+                while (true) {
+                    try {
+                        Deferred next = deferred.peek();
+                        long wait = next == null ? 1000 : Math.max(0, next.due - System.currentTimeMillis());
+                        Object item = queue.poll(wait, TimeUnit.MILLISECONDS);
+                        if (item instanceof Event event) {
+                            handle(event);
+                        } else if (item instanceof List<?> batch) {
+                            for (Object event : batch) {
+                                handle((Event) event);
+                            }
+                        } else if (item instanceof CoalesceTicket ticket) {
+                            handleTicket(ticket.key, ticket.window);
+                        }
+                        while ((next = deferred.peek()) != null && next.due <= System.currentTimeMillis()) {
+                            deferred.poll();
+                            deliverPending(next.key);
+                        }
+                        // overflow values are newer than anything in queue, so deliver them only after queue drained
+                        if (queue.isEmpty() && !overflow.isEmpty()) {
+                            for (String key : overflow.keySet()) {
+                                Event event = overflow.remove(key);
+                                if (event != null) {
+                                    handle(event);
+                                }
+                            }
+                        }
+                    } catch (Exception ex) {
+                        log.error("Error while execute event handler", ex);
+                    }
+                }
+            }, name).start();
+        }
+
+        private void handleTicket(String key, long window) {
+            Long last = lastDelivered.get(key);
+            long now = System.currentTimeMillis();
+            if (last != null && now < last + window) {
+                deferred.add(new Deferred(key, last + window));
+            } else {
+                deliverPending(key);
+            }
+        }
+
+        private void deliverPending(String key) {
+            Event event = pending.remove(key);
+            if (event != null) {
+                lastDelivered.put(key, System.currentTimeMillis());
+                handle(event);
+            }
+        }
+
+        private void handle(Event event) {
+            long latency = System.nanoTime() - event.firedAt;
+            handled.increment();
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            dispatchEvent(event);
+        }
+    }
+
+    private record Deferred(String key, long due) {}
 
     private record EntityUpdate(Object entity, EntityUpdateAction itemAction) {}
 }
@@ -2,7 +2,6 @@ package org.homio.app.manager.common.impl;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -10,13 +9,12 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
+import java.util.function.Predicate;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.homio.addon.z2m.model.Z2MLocalCoordinatorEntity;
@@ -35,8 +33,10 @@ import org.homio.api.util.CommonUtils;
 import org.homio.app.LogService;
 import org.homio.app.config.TransactionManagerContext;
 import org.homio.app.manager.CacheService;
+import org.homio.app.manager.EntityAccessor;
 import org.homio.app.manager.common.ContextImpl;
 import org.homio.app.manager.common.ContextImpl.ItemAction;
+import org.homio.app.manager.common.EntityIdIndex;
 import org.homio.app.manager.common.EntityManager;
 import org.homio.app.model.entity.widget.WidgetEntity;
 import org.homio.app.model.entity.widget.WidgetEntityAndSeries;
@@ -50,8 +50,6 @@ import org.homio.app.repository.widget.WidgetSeriesRepository;
 import org.homio.app.service.mem.InMemoryDB;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.springframework.cglib.proxy.Enhancer;
-import org.springframework.cglib.proxy.MethodInterceptor;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Log4j2
@@ -90,35 +88,9 @@ public class ContextStorageImpl implements ContextStorage {
 
     @Override
     public <T extends BaseEntity> void updateDelayed(T entity, Consumer<T> consumer) {
-        Map<String, Object[]> changeFields = new HashMap<>();
-        MethodInterceptor handler = (obj, method, args, proxy) -> {
-            String setName = method.getName();
-            if (setName.startsWith("set")) {
-                Object oldValue;
-                try {
-                    oldValue = context.getCacheService().getFieldValue(entity.getIdentifier(), setName);
-                    if (oldValue == null) {
-                        oldValue = MethodUtils.invokeMethod(entity, method.getName().replaceFirst("set", "get"));
-                    }
-                } catch (NoSuchMethodException ex) {
-                    oldValue = MethodUtils.invokeMethod(entity, method.getName().replaceFirst("set", "is"));
-                }
-                Object newValue = setName.startsWith("setJsonData") ? args[1] : args[0];
-                if (!Objects.equals(oldValue, newValue)) {
-                    changeFields.put(setName, args);
-                    // invoke called entity to update with new value
-                    MethodUtils.invokeMethod(entity, method.getName(), args);
-                }
-            }
-            if (method.getReturnType().isAssignableFrom(entity.getClass())) {
-                proxy.invoke(entity, args);
-                return obj;
-            }
-            return proxy.invoke(entity, args);
-        };
-
-        T proxyInstance = (T) Enhancer.create(entity.getClass(), handler);
-        consumer.accept(proxyInstance);
+        EntityAccessor accessor = EntityAccessor.of(entity.getClass());
+        Object[] snapshot = accessor.snapshot(entity);
+        consumer.accept(entity);
 
         // fire entityUpdateListeners only if method called not from transaction
         if (!TransactionSynchronizationManager.isActualTransactionActive()) {
@@ -126,8 +98,9 @@ public class ContextStorageImpl implements ContextStorage {
             runUpdateNotifyListeners(entity, oldEntity, context.event().getEntityUpdateListeners());
         }
 
-        if (!changeFields.isEmpty()) {
-            putToCache(entity, changeFields);
+        EntityAccessor.Changes changes = accessor.changes(entity, snapshot);
+        if (changes != null) {
+            putToCache(entity, changes);
 
             // fire change event manually
             context.sendEntityUpdateNotification(entity, ItemAction.Update);
@@ -172,6 +145,10 @@ public class ContextStorageImpl implements ContextStorage {
         return updatedEntity;
     }
 
+    public EntityIdIndex getEntityIdIndex() {
+        return entityManager.getEntityIdIndex();
+    }
+
     public List<BaseEntity> findAllBaseEntities() {
         return new ArrayList<>(findAll(DeviceBaseEntity.class));
     }
@@ -184,15 +161,25 @@ public class ContextStorageImpl implements ContextStorage {
     @Override
     public <T extends BaseEntity> @NotNull List<T> findAllByPrefix(@NotNull String prefix) {
         AbstractRepository<? extends BaseEntity> repository = context.getRepositoryByPrefix(prefix);
-        return findAllByRepository((Class<BaseEntity>) repository.getEntityClass());
+        Class<BaseEntity> entityClass = (Class<BaseEntity>) repository.getEntityClass();
+        // devices also include in-memory devices which not indexed
+        if (!repository.isUseCache() || entityClass.equals(DeviceBaseEntity.class)) {
+            return findAllByRepository(entityClass);
+        }
+        return entityManager.getEntityIdIndex().getEntityIDs(prefix, repository).stream()
+                            .map(entityID -> entityManager.<T>getEntityWithFetchLazy(entityID))
+                            .filter(Objects::nonNull)
+                            .toList();
     }
 
     @Override
     public BaseEntity delete(@NotNull String entityID) {
         AbstractRepository repository = ContextImpl.getRepository(entityID);
         BaseEntity deletedEntity = repository.deleteByEntityID(entityID);
-        cacheService.clearCache();
-        if (deletedEntity != null) {
+        if (deletedEntity == null) {
+            cacheService.evictEntity(entityID);
+        } else {
+            cacheService.entityUpdated(deletedEntity);
             context.getBean(LogService.class).deleteEntityLogsFile(deletedEntity);
             runUpdateNotifyListeners(null, deletedEntity, context.event().getEntityRemoveListeners());
         }
@@ -205,7 +192,8 @@ public class ContextStorageImpl implements ContextStorage {
         if (baseEntity == null) {
             baseEntity = entityManager.getEntityNoCache(entityID);
             if (baseEntity != null) {
-                cacheService.clearCache();
+                // entity created outside of save(...)
+                cacheService.entityUpdated(baseEntity);
             }
         }
 
@@ -233,7 +221,7 @@ public class ContextStorageImpl implements ContextStorage {
         }
 
         saved = save(saved, true);
-        cacheService.clearCache();
+        cacheService.entityUpdated(saved);
         return saved;
     }
 
@@ -241,8 +229,8 @@ public class ContextStorageImpl implements ContextStorage {
         ENTITY_MEMORY_MAP.remove(entityID);
     }
 
-    private void putToCache(BaseEntity entity, Map<String, Object[]> changeFields) {
-        context.getCacheService().putToCache(ContextImpl.getRepository(entity.getEntityPrefix()), entity, changeFields);
+    private void putToCache(BaseEntity entity, @Nullable EntityAccessor.Changes changes) {
+        context.getCacheService().putToCache(ContextImpl.getRepository(entity.getEntityPrefix()), entity, changes);
     }
 
     private <T extends HasEntityIdentifier> void runUpdateNotifyListeners(@Nullable T updatedEntity, T oldEntity,
@@ -316,14 +304,33 @@ public class ContextStorageImpl implements ContextStorage {
 
     @Override
     public List<DeviceBaseEntity> getDeviceEntity(@NotNull String ieeeAddress, @Nullable String typePrefix) {
-        List<DeviceBaseEntity> entities = findAll(DeviceBaseEntity.class);
-        Stream<DeviceBaseEntity> stream = entities
-            .stream()
-            .filter(e -> ieeeAddress.equals(e.getIeeeAddress()) || e.getEntityID().equals(ieeeAddress));
-        if (typePrefix != null) {
-            stream = stream.filter(e -> e.getEntityID().startsWith(DeviceBaseEntity.PREFIX + typePrefix));
+        Set<String> entityIDs = entityManager.getEntityIdIndex().getDeviceEntityIDs(ieeeAddress, allDeviceRepository);
+        if (ieeeAddress.startsWith(DeviceBaseEntity.PREFIX)) {
+            entityIDs.add(ieeeAddress);
+        }
+        Predicate<DeviceBaseEntity> typeFilter = e -> typePrefix == null || e.getEntityID().startsWith(DeviceBaseEntity.PREFIX + typePrefix);
+        List<DeviceBaseEntity> result = new ArrayList<>();
+        for (String entityID : entityIDs) {
+            DeviceBaseEntity entity = entityManager.getEntityWithFetchLazy(entityID);
+            if (entity != null && typeFilter.test(entity)) {
+                result.add(entity);
+            }
         }
-        return stream.toList();
+        // in-memory z2m devices are not stored in db and live only in coordinator service of z2m addon, which has no device
+        // add/remove callback to keep ieeeAddress index in sync. So they are still matched by scan of coordinator device handlers,
+        // only coordinators resolved from same index as devices
+        for (String coordinatorID : entityManager.getEntityIdIndex().getEntityIDs(Z2MLocalCoordinatorEntity.class, allDeviceRepository)) {
+            Z2MLocalCoordinatorEntity coordinator = entityManager.getEntityWithFetchLazy(coordinatorID);
+            if (coordinator == null) {
+                continue;
+            }
+            coordinator.getService().getDeviceHandlers().values().stream()
+                       .map(deviceService -> (DeviceBaseEntity) deviceService.getDeviceEntity())
+                       .filter(e -> ieeeAddress.equals(e.getIeeeAddress()) || e.getEntityID().equals(ieeeAddress))
+                       .filter(typeFilter)
+                       .forEach(result::add);
+        }
+        return result;
     }
 
     private void setMemValue(@NotNull HasEntityIdentifier entity, @NotNull String key, @NotNull String title, @Nullable Object value) {
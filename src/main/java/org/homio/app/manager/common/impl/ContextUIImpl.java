@@ -41,6 +41,7 @@ import org.homio.app.audio.webaudio.WebAudioAudioSink;
 import org.homio.app.builder.ui.UIInputBuilderImpl;
 import org.homio.app.builder.ui.UIInputEntityActionHandler;
 import org.homio.app.config.WebSocketConfig;
+import org.homio.app.config.WebSocketSubscriptions;
 import org.homio.app.manager.common.ContextImpl;
 import org.homio.app.model.entity.widget.WidgetEntity;
 import org.homio.app.model.rest.DynamicUpdateRequest;
@@ -49,20 +50,24 @@ import org.homio.app.notification.HeaderButtonSelection;
 import org.homio.app.notification.NotificationBlock;
 import org.homio.app.notification.NotificationBlock.Info;
 import org.homio.app.notification.ProgressNotification;
+import org.homio.app.utils.MessagePackUtils;
 import org.homio.app.utils.UIFieldUtils;
 import org.homio.hquery.ProgressBar;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -81,6 +86,14 @@ public class ContextUIImpl implements ContextUI {
 
     public static final @NotNull Map<String, String> customConsolePluginNames = new HashMap<>();
     private static final @NotNull Object EMPTY = new Object();
+    private static final @NotNull String GLOBAL_DESTINATION = "-global";
+    // dynamic updates sends to own destination per dynamicUpdateId if client subscribed to it
+    private static final @NotNull String DYNAMIC_DESTINATION = "-dynamic-";
+    // client may subscribe to <destination>-batch to receive all destination messages once per flush tick
+    private static final @NotNull String BATCH_SUFFIX = "-batch";
+    private static final @NotNull String MSGPACK_BATCH_SUFFIX = "-batch-msgpack";
+    // stomp handler sends only application/octet-stream payloads as binary websocket frames, any other as utf-8 text
+    private static final @NotNull MimeType MSGPACK_MIME_TYPE = MimeTypeUtils.APPLICATION_OCTET_STREAM;
     private final @NotNull Map<DynamicUpdateRequest, DynamicUpdateContext> dynamicUpdateRegisters = new ConcurrentHashMap<>();
     private final @NotNull Map<String, DialogModel> dialogRequest = new ConcurrentHashMap<>();
     private final @NotNull Map<String, NotificationBlock> blockNotifications = new ConcurrentHashMap<>();
@@ -95,6 +108,8 @@ public class ContextUIImpl implements ContextUI {
     private final @NotNull Map<String, SendUpdateContext> sendToUIMap = new ConcurrentHashMap<>();
     private final @NotNull ReentrantLock treeNodeLock = new ReentrantLock();
     private final @NotNull Map<String, TreeNode> treeNodesSendToUIMap = new ConcurrentHashMap<>();
+    // destination -> messages waiting for next flush tick
+    private final @NotNull Map<String, List<ObjectNode>> pendingFrames = new ConcurrentHashMap<>();
 
     private final @Getter
     @Accessors(fluent = true) ContextUIToastrImpl toastr = new ContextUIToastrImpl();
@@ -114,18 +129,34 @@ public class ContextUIImpl implements ContextUI {
     private final @NotNull Map<String, Object> refreshConsolePlugin = new ConcurrentHashMap<>();
 
     private WebAudioAudioSink webAudioSink;
+    private @Nullable WebSocketSubscriptions subscriptions;
 
     public void onContextCreated() {
         webAudioSink = context.getBean(WebAudioAudioSink.class);
-        // run hourly script to drop not used dynamicUpdateRegisters
+        subscriptions = context.getBean(WebSocketSubscriptions.class);
+        subscriptions.addListener(new DynamicUpdateSubscriptionListener());
+        context.bgp().registerThreadsPuller("ws-destinations", threadPuller -> {
+            threadPuller.addThread("dynamic-updates", "Registrations: %s. Websocket subscriptions: %s. Sessions: %s".formatted(
+                dynamicUpdateRegisters.size(), getDynamicUpdateSubscriptionCount(), subscriptions.getSessionCount()),
+                null, "RUNNING", null, null);
+            subscriptions.pullStatistic(threadPuller);
+        });
+        // drop rest registrations which client not refreshed
         context
                 .bgp()
                 .builder("drop-outdated-dynamicContext")
-                .intervalWithDelay(Duration.ofHours(1))
-                .execute(() ->
-                        this.dynamicUpdateRegisters.values().removeIf(v -> TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis() - v.timeout) > 1));
+                .intervalWithDelay(Duration.ofMinutes(1))
+                .execute(() -> {
+                    long now = System.currentTimeMillis();
+                    for (Entry<DynamicUpdateRequest, DynamicUpdateContext> entry : dynamicUpdateRegisters.entrySet()) {
+                        if (entry.getValue().isExpired(now)) {
+                            dropRegistration(entry.getKey(), entry.getValue());
+                        }
+                    }
+                });
 
-        context.bgp().builder("send-ui-updates").interval(Duration.ofSeconds(1)).execute(() -> {
+        Duration flushInterval = context.setting().getEnvRequire("interval-ui-flush", Duration.class, Duration.ofSeconds(1), true);
+        context.bgp().builder("send-ui-updates").interval(flushInterval).execute(() -> {
             for (Iterator<SendUpdateContext> iterator = sendToUIMap.values().iterator(); iterator.hasNext(); ) {
                 SendUpdateContext context = iterator.next();
 
@@ -161,28 +192,76 @@ public class ContextUIImpl implements ContextUI {
                 }
                 iterator.remove();
             }
+            flushFrames();
         });
     }
 
     public void registerForUpdates(DynamicUpdateRequest request) {
+        register(request, false);
+    }
+
+    public void unRegisterForUpdates(DynamicUpdateRequest request) {
+        unregister(request, false);
+    }
+
+    /**
+     * @return number of live websocket subscriptions to dynamic updates
+     */
+    public int getDynamicUpdateSubscriptionCount() {
+        int count = 0;
+        for (DynamicUpdateContext duc : dynamicUpdateRegisters.values()) {
+            count += duc.subscriptionCounter;
+        }
+        return count;
+    }
+
+    /**
+     * Event listener attached only once per request and detached when last registration gone
+     */
+    private synchronized void register(@NotNull DynamicUpdateRequest request, boolean subscription) {
         DynamicUpdateContext duc = dynamicUpdateRegisters.get(request);
         if (duc == null) {
-            dynamicUpdateRegisters.put(request, new DynamicUpdateContext());
+            duc = new DynamicUpdateContext();
+            dynamicUpdateRegisters.put(request, duc);
+            context.event().addEventListener(request.getDynamicUpdateId(), getListenerDiscriminator(request), value ->
+                sendDynamicUpdateSupplied(request, () -> value));
+        }
+        duc.timeout = System.currentTimeMillis(); // refresh timer
+        if (subscription) {
+            duc.subscriptionCounter++;
         } else {
-            duc.timeout = System.currentTimeMillis(); // refresh timer
-            duc.registerCounter.incrementAndGet();
+            duc.registerCounter++;
         }
-        context.event().addEventListener(request.getDynamicUpdateId(), value ->
-                sendDynamicUpdateSupplied(request, () -> value));
     }
 
-    public void unRegisterForUpdates(DynamicUpdateRequest request) {
-        DynamicUpdateContext context = dynamicUpdateRegisters.get(request);
-        if (context != null && context.registerCounter.decrementAndGet() == 0) {
-            dynamicUpdateRegisters.remove(request);
+    private synchronized void unregister(@NotNull DynamicUpdateRequest request, boolean subscription) {
+        DynamicUpdateContext duc = dynamicUpdateRegisters.get(request);
+        if (duc != null) {
+            if (subscription) {
+                duc.subscriptionCounter = Math.max(0, duc.subscriptionCounter - 1);
+            } else {
+                duc.registerCounter = Math.max(0, duc.registerCounter - 1);
+            }
+            if (duc.registerCounter == 0 && duc.subscriptionCounter == 0) {
+                dropRegistration(request, duc);
+            }
+        }
+    }
+
+    private synchronized void dropRegistration(@NotNull DynamicUpdateRequest request, @NotNull DynamicUpdateContext duc) {
+        if (dynamicUpdateRegisters.remove(request, duc)) {
+            context.event().removeEventListener(getListenerDiscriminator(request), request.getDynamicUpdateId());
         }
     }
 
+    private static @NotNull String getListenerDiscriminator(@NotNull DynamicUpdateRequest request) {
+        return "dynamic-update-" + defaultIfEmpty(request.getEntityID(), "");
+    }
+
+    public boolean isDynamicUpdateRegistered(@NotNull String dynamicUpdateId, @Nullable String entityId) {
+        return dynamicUpdateRegisters.containsKey(new DynamicUpdateRequest(dynamicUpdateId, entityId));
+    }
+
     public void sendDynamicUpdateImpl(@NotNull String dynamicUpdateId, @Nullable String entityId, @Nullable Object value) {
         if (value != null) {
             sendDynamicUpdateSupplied(new DynamicUpdateRequest(dynamicUpdateId, entityId), () -> value);
@@ -192,12 +271,27 @@ public class ContextUIImpl implements ContextUI {
     public void sendDynamicUpdateSupplied(@NotNull DynamicUpdateRequest request, @NotNull Supplier<Object> supplier) {
         DynamicUpdateContext context = dynamicUpdateRegisters.get(request);
         if (context != null) {
+            if (context.isExpired(System.currentTimeMillis())) {
+                dropRegistration(request, context);
+                return;
+            }
+            // websocket subscribers of this request listens dedicated destination, rest registered clients listens global
+            String destination = DYNAMIC_DESTINATION + request.getDynamicUpdateId();
+            boolean sendDedicated = context.subscriptionCounter > 0 && hasSubscribers(destination);
+            boolean sendGlobal = context.registerCounter > 0 && hasSubscribers(GLOBAL_DESTINATION);
+            if (!sendDedicated && !sendGlobal) {
+                skip(context.subscriptionCounter > 0 ? destination : GLOBAL_DESTINATION);
+                return;
+            }
             Object value = supplier.get();
             if (value != null) {
-                if (System.currentTimeMillis() - context.timeout > 60000) {
-                    dynamicUpdateRegisters.remove(request);
-                } else {
-                    sendGlobal(GlobalSendType.dynamicUpdate, null, value, null, OBJECT_MAPPER.createObjectNode().putPOJO("dynamicRequest", request));
+                ObjectNode node = buildGlobalNode(GlobalSendType.dynamicUpdate, null, value, null,
+                    OBJECT_MAPPER.createObjectNode().putPOJO("dynamicRequest", request));
+                if (sendDedicated) {
+                    send(destination, node);
+                }
+                if (sendGlobal) {
+                    send(GLOBAL_DESTINATION, node);
                 }
             }
         }
@@ -266,6 +360,15 @@ public class ContextUIImpl implements ContextUI {
                         .putPOJO("value", value)));
     }
 
+    /**
+     * Same as updateInnerSetItem(...) but with prebuilt descriptor and lazy value
+     */
+    public void updateInnerSetItem(@NotNull InnerSetItemUpdate update) {
+        if (this.dynamicUpdateRegisters.containsKey(update.request)) {
+            this.sendToUIMap.put(update.key, update.updateContext);
+        }
+    }
+
     @Override
     public void sendDynamicUpdate(@NotNull String dynamicUpdateID, @NotNull Object value) {
         if (dynamicUpdateID.startsWith("tree-")) {
@@ -337,12 +440,85 @@ public class ContextUIImpl implements ContextUI {
 
     @Override
     public void sendRawData(@NotNull String destination, @NotNull String value) {
-        messagingTemplate.convertAndSend(WebSocketConfig.DESTINATION_PREFIX + destination, value);
+        if (subscriptions == null || isSubscribed(destination)) {
+            sendBytes(destination, value.getBytes(StandardCharsets.UTF_8), MimeTypeUtils.TEXT_PLAIN);
+        } else {
+            skip(destination);
+        }
     }
 
     @Override
     public void sendRawData(@NotNull String destination, @NotNull ObjectNode param) {
-        messagingTemplate.convertAndSend(WebSocketConfig.DESTINATION_PREFIX + destination, param);
+        if (hasSubscribers(destination)) {
+            send(destination, param);
+        } else {
+            skip(destination);
+        }
+    }
+
+    /**
+     * Serialize message once. Broker shares same payload between all destination subscribers. Batch subscribers receives
+     * message on next flush tick
+     */
+    @SneakyThrows
+    private void send(@NotNull String destination, @NotNull ObjectNode param) {
+        if (subscriptions == null || isSubscribed(destination)) {
+            sendBytes(destination, OBJECT_MAPPER.writeValueAsBytes(param), MimeTypeUtils.APPLICATION_JSON);
+        }
+        if (isSubscribed(destination + BATCH_SUFFIX) || isSubscribed(destination + MSGPACK_BATCH_SUFFIX)) {
+            pendingFrames.compute(destination, (key, frames) -> {
+                List<ObjectNode> list = frames == null ? new ArrayList<>() : frames;
+                list.add(param);
+                return list;
+            });
+        }
+    }
+
+    /**
+     * Send all pending messages as one envelope per destination
+     */
+    @SneakyThrows
+    private void flushFrames() {
+        for (String destination : pendingFrames.keySet()) {
+            List<ObjectNode> frames = pendingFrames.remove(destination);
+            if (frames == null || frames.isEmpty()) {
+                continue;
+            }
+            ObjectNode envelope = OBJECT_MAPPER.createObjectNode().put("type", "batch");
+            envelope.putArray("items").addAll(frames);
+            if (isSubscribed(destination + BATCH_SUFFIX)) {
+                sendBytes(destination + BATCH_SUFFIX, OBJECT_MAPPER.writeValueAsBytes(envelope), MimeTypeUtils.APPLICATION_JSON);
+            }
+            if (isSubscribed(destination + MSGPACK_BATCH_SUFFIX)) {
+                sendBytes(destination + MSGPACK_BATCH_SUFFIX, MessagePackUtils.pack(envelope), MSGPACK_MIME_TYPE);
+            }
+        }
+    }
+
+    private void sendBytes(@NotNull String destination, byte @NotNull [] payload, @NotNull MimeType contentType) {
+        messagingTemplate.send(WebSocketConfig.DESTINATION_PREFIX + destination,
+            MessageBuilder.withPayload(payload).setHeader(MessageHeaders.CONTENT_TYPE, contentType).build());
+        if (subscriptions != null) {
+            subscriptions.recordSend(destination, payload.length);
+        }
+    }
+
+    private boolean hasSubscribers(@NotNull String destination) {
+        // before context created we have no subscription info
+        return subscriptions == null
+            || isSubscribed(destination)
+            || isSubscribed(destination + BATCH_SUFFIX)
+            || isSubscribed(destination + MSGPACK_BATCH_SUFFIX);
+    }
+
+    private boolean isSubscribed(@NotNull String destination) {
+        return subscriptions != null && subscriptions.hasSubscribers(WebSocketConfig.DESTINATION_PREFIX + destination);
+    }
+
+    private void skip(@NotNull String destination) {
+        if (subscriptions != null) {
+            subscriptions.recordSkip(destination);
+        }
     }
 
     @Override
@@ -522,6 +698,15 @@ public class ContextUIImpl implements ContextUI {
     }
 
     void sendGlobal(@NotNull GlobalSendType type, @Nullable String entityID, @Nullable Object value, @Nullable String title, @Nullable ObjectNode objectNode) {
+        if (hasSubscribers(GLOBAL_DESTINATION)) {
+            send(GLOBAL_DESTINATION, buildGlobalNode(type, entityID, value, title, objectNode));
+        } else {
+            skip(GLOBAL_DESTINATION);
+        }
+    }
+
+    private static @NotNull ObjectNode buildGlobalNode(@NotNull GlobalSendType type, @Nullable String entityID, @Nullable Object value,
+        @Nullable String title, @Nullable ObjectNode objectNode) {
         if (objectNode == null) {
             objectNode = OBJECT_MAPPER.createObjectNode();
         }
@@ -532,8 +717,7 @@ public class ContextUIImpl implements ContextUI {
         if (title != null) {
             objectNode.put("title", title);
         }
-
-        sendRawData("-global", objectNode);
+        return objectNode;
     }
 
     private void sendHeaderButtonToUI(HeaderButtonNotification notification, Consumer<ObjectNode> additionalSupplier) {
@@ -643,8 +827,47 @@ public class ContextUIImpl implements ContextUI {
 
     private static class DynamicUpdateContext {
 
-        private final AtomicInteger registerCounter = new AtomicInteger(0);
-        private long timeout = System.currentTimeMillis();
+        // rest registrations, expires if not refreshed by client
+        private int registerCounter;
+        // websocket subscriptions, released on unsubscribe/disconnect
+        private int subscriptionCounter;
+        private volatile long timeout = System.currentTimeMillis();
+
+        private boolean isExpired(long now) {
+            return subscriptionCounter == 0 && now - timeout > 60000;
+        }
+    }
+
+    /**
+     * Websocket subscription to '-dynamic-{id}' destination acts as registration for updates
+     */
+    private class DynamicUpdateSubscriptionListener implements WebSocketSubscriptions.SubscriptionListener {
+
+        @Override
+        public void onSubscribe(@NotNull WebSocketSubscriptions.Subscription subscription) {
+            DynamicUpdateRequest request = toRequest(subscription);
+            if (request != null) {
+                register(request, true);
+            }
+        }
+
+        @Override
+        public void onUnsubscribe(@NotNull WebSocketSubscriptions.Subscription subscription) {
+            DynamicUpdateRequest request = toRequest(subscription);
+            if (request != null) {
+                unregister(request, true);
+            }
+        }
+
+        private @Nullable DynamicUpdateRequest toRequest(@NotNull WebSocketSubscriptions.Subscription subscription) {
+            String prefix = WebSocketConfig.DESTINATION_PREFIX + DYNAMIC_DESTINATION;
+            if (!subscription.destination().startsWith(prefix)) {
+                return null;
+            }
+            String dynamicUpdateId = StringUtils.removeEnd(StringUtils.removeEnd(
+                subscription.destination().substring(prefix.length()), MSGPACK_BATCH_SUFFIX), BATCH_SUFFIX);
+            return dynamicUpdateId.isEmpty() ? null : new DynamicUpdateRequest(dynamicUpdateId, subscription.entityID());
+        }
     }
 
     private record NotificationBlockBuilderImpl(NotificationBlock notificationBlock,
@@ -784,6 +1007,37 @@ public class ContextUIImpl implements ContextUI {
 
     }
 
+    /**
+     * Reusable descriptor of inner set item update for frequently updated items. Value supplier evaluated only when update
+     * actually sent to UI, so nothing computed if no one listens for parent entity type
+     */
+    public static class InnerSetItemUpdate {
+
+        private final DynamicUpdateRequest request;
+        private final String key;
+        private final SendUpdateContext updateContext;
+
+        public InnerSetItemUpdate(
+            @NotNull BaseEntityIdentifier parentEntity,
+            @NotNull String parentFieldName,
+            @NotNull String innerEntityID,
+            @NotNull String updateField,
+            @NotNull Supplier<Object> valueSupplier) {
+            String dynamicUpdateId = buildEntityDynamicUpdateId(parentEntity);
+            String parentEntityID = parentEntity.getEntityID();
+            this.request = new DynamicUpdateRequest("entity-type-" + parentEntity.getDynamicUpdateType());
+            this.key = parentEntityID + parentFieldName + innerEntityID + updateField;
+            this.updateContext = new SendUpdateContext(dynamicUpdateId, () ->
+                OBJECT_MAPPER
+                    .createObjectNode()
+                    .put("type", "add")
+                    .put("entityID", parentEntityID)
+                    .put("updateField", updateField)
+                    .put("parentField", parentFieldName)
+                    .putPOJO("value", valueSupplier.get()));
+        }
+    }
+
     public class ContextUIToastrImpl implements ContextUIToastr {
 
         @Override
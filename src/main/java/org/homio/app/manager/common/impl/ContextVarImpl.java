@@ -7,6 +7,8 @@ import static org.homio.api.util.CommonUtils.getErrorMessage;
 import com.fathzer.soft.javaluator.DoubleEvaluator;
 import com.fathzer.soft.javaluator.Operator;
 import com.fathzer.soft.javaluator.Parameters;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.pivovarit.function.ThrowingConsumer;
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -14,12 +16,15 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -51,7 +56,9 @@ import org.homio.api.util.CommonUtils;
 import org.homio.api.util.DataSourceUtil;
 import org.homio.api.util.Lang;
 import org.homio.app.manager.common.ContextImpl;
+import org.homio.app.manager.common.impl.ContextUIImpl.InnerSetItemUpdate;
 import org.homio.app.manager.common.impl.ContextVarImpl.TransformVariableContext.ExtendedDoubleEvaluator;
+import org.homio.app.manager.common.impl.javaluator.CompiledExpression;
 import org.homio.app.manager.common.impl.javaluator.DynamicVariableSet;
 import org.homio.app.manager.common.impl.javaluator.ObjectEvaluator;
 import org.homio.app.model.var.VariableBackup;
@@ -62,6 +69,9 @@ import org.homio.app.model.var.WorkspaceVariable.VarType;
 import org.homio.app.model.var.WorkspaceVariableMessage;
 import org.homio.app.repository.VariableBackupRepository;
 import org.homio.app.repository.WorkspaceVariableRepository;
+import org.homio.app.service.mem.ColumnarDataStorageService;
+import org.homio.app.service.mem.SlidingWindowAggregate;
+import org.homio.app.workspace.ConditionDependencies;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONObject;
@@ -71,11 +81,21 @@ import org.json.JSONObject;
 public class ContextVarImpl implements ContextVar {
 
     public static final Map<String, VariableContext> globalVarStorageMap = new ConcurrentHashMap<>();
+    private static final int MAX_CHART_POINTS = 2000;
+    // max samples kept by one sliding window aggregation, bigger windows answered from storage
+    private static final int MAX_WINDOW_SAMPLES = 100_000;
+    private static final int MAX_COMPILED_EXPRESSIONS = 1000;
     private final @Getter @Accessors(fluent = true) ContextImpl context;
     private final VariableBackupRepository variableBackupRepository;
     private final ReentrantLock createContextLock = new ReentrantLock();
+    // coalesce source updates of transform variable within this window into one recalculation
+    private Duration transformDebounce = Duration.ZERO;
+    // evaluate() expressions by code and sources. Empty if compiler not supports expression and ExtendedDoubleEvaluator used
+    private final Cache<String, Optional<CompiledExpression>> compiledExpressions =
+        CacheBuilder.newBuilder().maximumSize(MAX_COMPILED_EXPRESSIONS).build();
 
     public void onContextCreated() {
+        transformDebounce = context.setting().getEnvRequire("var-transform-debounce", Duration.class, Duration.ofMillis(100), true);
         String broadcastsId = context.var().createGroup("broadcasts", "Broadcasts", group ->
             group.setIcon(new Icon("fas fa-tower-broadcast", "#A32677")).setLocked(true));
 
@@ -94,8 +114,9 @@ public class ContextVarImpl implements ContextVar {
                 context.hasBackup = variable.isBackup();
                 variableBackupRepository.delete(context.variable);
             }
-            context.variable = variable;
+            setVariable(context, variable);
             context.storageService.updateQuota((long) variable.getQuota());
+            updateRetention(context.storageService, variable);
             if (context.transformVariableContext != null) {
                 context.transformVariableContext.dispose();
                 context.transformVariableContext.registerSources();
@@ -109,6 +130,8 @@ public class ContextVarImpl implements ContextVar {
 
         context.bgp().builder("var-backup").intervalWithDelay(Duration.ofSeconds(60))
                 .cancelOnError(false).execute(this::backupVariables);
+        context.bgp().builder("var-retention").intervalWithDelay(Duration.ofHours(1))
+                .cancelOnError(false).execute(this::evictExpiredValues);
 
         context.ui().addItemContextMenu(broadcastsId, "addSubGroup",
             uiInputBuilder -> uiInputBuilder.addOpenDialogSelectableButton("ADD_BROADCAST_GROUP", new Icon("fas fa-layer-group"), null,
@@ -200,11 +223,15 @@ public class ContextVarImpl implements ContextVar {
     @Override
     public Object getRawValue(@NotNull String variableId) {
         VariableContext context = getOrCreateContext(variableId);
-        WorkspaceVariableMessage latest = context.storageService.getLatest();
-        if (latest == null) {
-            return null;
+        // workspace condition which reads variable re-evaluated on variable change event
+        ConditionDependencies.record(context.variable.getEntityID());
+        Object value;
+        if (context.storageService instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+            value = columnarService.getLatestValue();
+        } else {
+            WorkspaceVariableMessage latest = context.storageService.getLatest();
+            value = latest == null ? null : latest.getValue();
         }
-        Object value = latest.getValue();
         // force convert from double to float
         if (value instanceof Double) {
             return ((Double) value).floatValue();
@@ -337,22 +364,85 @@ public class ContextVarImpl implements ContextVar {
                 .storageService.aggregate(from, to, null, null, aggregationType, exactNumber);
     }
 
+    /**
+     * Aggregate last 'window' of variable values from incrementally maintained window state. Window state created on first
+     * request from storage. Aggregation types not supported by window and overflowed windows answered from storage
+     */
+    public Object aggregateWindow(@NotNull String variableId, @NotNull Duration window, @NotNull AggregationType aggregationType) {
+        VariableContext varContext = getOrCreateContext(variableId);
+        long windowMillis = window.toMillis();
+        if (SlidingWindowAggregate.isSupported(aggregationType)
+            && varContext.storageService instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+            SlidingWindowAggregate aggregate = varContext.windows.get(windowMillis);
+            if (aggregate == null) {
+                SlidingWindowAggregate newAggregate = new SlidingWindowAggregate(windowMillis, MAX_WINDOW_SAMPLES);
+                aggregate = varContext.windows.putIfAbsent(windowMillis, newAggregate);
+                if (aggregate == null) {
+                    aggregate = newAggregate;
+                    // samples saved after cutoff are buffered by aggregate, so history must not contain them
+                    long cutoff = System.currentTimeMillis();
+                    aggregate.load(columnarService.getValues(cutoff - windowMillis, cutoff), cutoff);
+                }
+            }
+            Object value = aggregate.get(aggregationType);
+            if (value != null) {
+                return value;
+            }
+        }
+        return varContext.storageService.aggregate(System.currentTimeMillis() - windowMillis, null, null, null, aggregationType, true);
+    }
+
     public Object evaluate(@Nullable String code, @Nullable List<TransformVariableSource> sources) {
-        List<TransformVariableSourceImpl> sourceIds = sources == null ? List.of() :
+        if (StringUtils.isEmpty(code)) {
+            return "";
+        }
+        List<TransformVariableSource> validSources = sources == null ? List.of() :
             sources.stream()
                    .filter(s -> StringUtils.isNotBlank(s.getType()) && StringUtils.isNotBlank(s.getValue()))
-                   .map((TransformVariableSource source) -> new TransformVariableSourceImpl(source, this))
                    .toList();
-        if (StringUtils.isNotEmpty(code)) {
-            DynamicVariableSet variables = new DynamicVariableSet(sourceIds);
-            return new ExtendedDoubleEvaluator(ContextVarImpl.this).evaluate(code, variables);
+        // compiled expression keeps own source accessors, so key includes sources
+        String key = validSources.stream()
+                                 .map(s -> s.getType() + ":" + s.getMeta() + ":" + s.getValue())
+                                 .collect(Collectors.joining("\n", code + "\n", ""));
+        Optional<CompiledExpression> expression = compiledExpressions.getIfPresent(key);
+        List<TransformVariableSourceImpl> sourceIds = null;
+        if (expression == null) {
+            sourceIds = createSources(validSources);
+            expression = Optional.ofNullable(compile(code, sourceIds));
+            compiledExpressions.put(key, expression);
+        }
+        if (expression.isPresent()) {
+            return expression.get().evaluate();
+        }
+        DynamicVariableSet variables = new DynamicVariableSet(sourceIds == null ? createSources(validSources) : sourceIds);
+        return new ExtendedDoubleEvaluator(ContextVarImpl.this).evaluate(code, variables);
+    }
+
+    private List<TransformVariableSourceImpl> createSources(List<TransformVariableSource> sources) {
+        return sources.stream().map(source -> new TransformVariableSourceImpl(source, this)).toList();
+    }
+
+    /**
+     * @return null if compiler not supports expression and it has to be evaluated by ExtendedDoubleEvaluator
+     */
+    private @Nullable CompiledExpression compile(@NotNull String code, @NotNull List<TransformVariableSourceImpl> sources) {
+        try {
+            return CompiledExpression.compile(code, sources, this);
+        } catch (Exception ex) {
+            log.warn("Unable to compile variable expression: '{}'. Use evaluator. Msg: {}", code, CommonUtils.getErrorMessage(ex));
+            return null;
         }
-        return "";
     }
 
     public List<Object[]> getTimeSeries(String variableId, PeriodRequest request) {
         DataStorageService<WorkspaceVariableMessage> service = getOrCreateContext(variableId).storageService;
-        List<Object[]> series = service.getTimeSeries(request.getFromTime(), request.getToTime(), null, null, "value", null, request.isSortAsc());
+        List<Object[]> series;
+        if (service instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+            // long periods answered from pre-aggregated buckets
+            series = columnarService.getTimeSeries(request.getFromTime(), request.getToTime(), request.isSortAsc(), MAX_CHART_POINTS);
+        } else {
+            series = service.getTimeSeries(request.getFromTime(), request.getToTime(), null, null, "value", null, request.isSortAsc());
+        }
         if (request.getFrom() != null || request.getTo() != null) {
             if (request.getMinItemsCount() > series.size()) {
                 if (request.isForward()) {
@@ -407,6 +497,26 @@ public class ContextVarImpl implements ContextVar {
         }
     }
 
+    /**
+     * Drop expired values of variables which are not updated for a long time
+     */
+    private void evictExpiredValues() {
+        for (VariableContext context : globalVarStorageMap.values()) {
+            // windows which not requested by any expression anymore
+            SlidingWindowAggregate.evictIdle(context.windows, Duration.ofHours(1).toMillis());
+            if (context.storageService instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+                columnarService.evictExpired();
+            }
+        }
+    }
+
+    private static void updateRetention(DataStorageService<WorkspaceVariableMessage> service, WorkspaceVariable variable) {
+        if (service instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+            int days = variable.getRetentionDays();
+            columnarService.updateRetention(days > 0 ? Duration.ofDays(days) : null);
+        }
+    }
+
     private Object convertBigDecimal(BigDecimal value) {
         // using unary operation will lead that return value would be always as float for some reason
         if (value.scale() == 0) {
@@ -416,6 +526,24 @@ public class ContextVarImpl implements ContextVar {
         }
     }
 
+    // plain decimal strings parsed directly, BigDecimal used only for rest formats
+    private Object parseNumber(String value) {
+        int length = value.length();
+        int dot = -1;
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch == '.' && dot == -1 && i > 0 && i < length - 1) {
+                dot = i;
+            } else if ((ch < '0' || ch > '9') && (i != 0 || length == 1 || (ch != '-' && ch != '+'))) {
+                return convertBigDecimal(new BigDecimal(value));
+            }
+        }
+        if (dot == -1) {
+            return length <= 18 ? Long.parseLong(value) : convertBigDecimal(new BigDecimal(value));
+        }
+        return Float.parseFloat(value);
+    }
+
     @Override
     public @NotNull Variable createVariable(
             @NotNull String groupId,
@@ -484,23 +612,53 @@ public class ContextVarImpl implements ContextVar {
         return variableContext;
     }
 
+    /**
+     * Set values of many variables at once. See VariableBatch
+     *
+     * @return converted values by variable id
+     */
+    public Map<String, Object> setAll(@NotNull Map<String, Object> values) {
+        VariableBatch batch = batch();
+        values.forEach(batch::set);
+        return batch.apply();
+    }
+
+    public VariableBatch batch() {
+        return new VariableBatch();
+    }
+
     private Object set(VariableContext varContext, Object value, boolean logIfNoLinked) {
+        value = convertAndValidate(varContext, value);
+        if (varContext.storageService instanceof ColumnarDataStorageService<WorkspaceVariableMessage> columnarService) {
+            long created = System.currentTimeMillis();
+            columnarService.saveValue(created, value);
+            varContext.updateWindows(created, value);
+        } else {
+            WorkspaceVariableMessage message = new WorkspaceVariableMessage(value);
+            varContext.storageService.save(message);
+            varContext.updateWindows(message.getCreated(), value);
+        }
+        // context.event().fireEvent(context.groupVariable.getVariableId(), value);
+        context.event().fireEvent(varContext.variable.getEntityID(), State.of(value));
+
+        // Fire update 'value' on UI. Snapshot evaluated lazily only if someone listens for group updates
+        context.ui().updateInnerSetItem(varContext.uiUpdate);
+
+        fireLinkListener(varContext, value, logIfNoLinked);
+        return value;
+    }
+
+    private Object convertAndValidate(VariableContext varContext, Object value) {
         value = varContext.valueConverter.apply(value);
-        WorkspaceGroup workspaceGroup = varContext.variable.getTopGroup();
         if (validateValueBeforeSave(value, varContext)) {
             String error = format("Validation type restriction: Unable to set value: '%s' to variable: '%s/%s' of type: '%s'", value,
-                varContext.variable.getName(), workspaceGroup.getEntityID(), varContext.variable.getRestriction().name());
+                varContext.variable.getName(), varContext.topGroupId, varContext.variable.getRestriction().name());
             throw new IllegalArgumentException(error);
         }
-        varContext.storageService.save(new WorkspaceVariableMessage(value));
-        // context.event().fireEvent(context.groupVariable.getVariableId(), value);
-        context.event().fireEvent(varContext.variable.getEntityID(), State.of(value));
-
-        // Fire update 'value' on UI
-        WorkspaceVariableEntity updatedEntity = WorkspaceVariableEntity.updatableEntity(varContext.variable, context);
-        context.ui().updateInnerSetItem(workspaceGroup, "workspaceVariableEntities",
-            varContext.variable.getEntityID(), varContext.variable.getEntityID(), updatedEntity);
+        return value;
+    }
 
+    private void fireLinkListener(VariableContext varContext, Object value, boolean logIfNoLinked) {
         if (varContext.linkListener != null) {
             try {
                 varContext.linkListener.accept(value);
@@ -510,7 +668,6 @@ public class ContextVarImpl implements ContextVar {
         } else if (logIfNoLinked) {
             log.warn("Updated variable: {} has no linked handler", varContext.variable.getTitle());
         }
-        return value;
     }
 
     private Function<Object, Object> createValueConverter(VariableType restriction) {
@@ -547,7 +704,7 @@ public class ContextVarImpl implements ContextVar {
                             return ((State) value).floatValue();
                         }
                     }
-                    return convertBigDecimal(new BigDecimal(value.toString()));
+                    return parseNumber(value.toString());
                 };
             }
             default -> {
@@ -561,8 +718,10 @@ public class ContextVarImpl implements ContextVar {
         var service = context.db().getOrCreateInMemoryService(
                 WorkspaceVariableMessage.class, variable.getEntityID(), (long) variable.getQuota());
 
+        updateRetention(service, variable);
+
         VariableContext context = new VariableContext(service, createValueConverter(variable.getRestriction()));
-        context.variable = variable;
+        setVariable(context, variable);
         context.hasBackup = variable.isBackup();
         globalVarStorageMap.put(variableId, context);
 
@@ -585,6 +744,13 @@ public class ContextVarImpl implements ContextVar {
         return context;
     }
 
+    private void setVariable(VariableContext varContext, WorkspaceVariable variable) {
+        varContext.variable = variable;
+        varContext.topGroupId = variable.getTopGroup().getEntityID();
+        varContext.uiUpdate = new InnerSetItemUpdate(variable.getTopGroup(), "workspaceVariableEntities",
+            variable.getEntityID(), variable.getEntityID(), () -> WorkspaceVariableEntity.updatableEntity(varContext.variable, context));
+    }
+
     private String saveOrUpdateGroup(@NotNull String groupId, @NotNull String groupName,
         @NotNull Consumer<GroupMetaBuilder> groupBuilder,
                                       @NotNull Consumer<WorkspaceGroup> additionalHandler) {
@@ -657,6 +823,17 @@ public class ContextVarImpl implements ContextVar {
         private ThrowingConsumer<Object, Exception> linkListener;
         private @Nullable @Setter TransformVariableContext transformVariableContext;
         private boolean hasBackup;
+        // reusable 'value' update for variable group on UI
+        private InnerSetItemUpdate uiUpdate;
+        private String topGroupId;
+        // window ms -> incremental aggregation of last window values
+        private final Map<Long, SlidingWindowAggregate> windows = new ConcurrentHashMap<>();
+
+        private void updateWindows(long timestamp, Object value) {
+            for (SlidingWindowAggregate window : windows.values()) {
+                window.add(timestamp, value);
+            }
+        }
 
         @Override
         public String toString() {
@@ -664,6 +841,66 @@ public class ContextVarImpl implements ContextVar {
         }
     }
 
+    /**
+     * Collects values for many variables and writes them together: one bulk insert per variable storage, one events batch,
+     * one UI update per variable. Storage save listeners, events and link listeners fired per value as N single set(...) do.
+     * Values converted and validated same as single set(...) before anything is written, so invalid value rejects whole batch
+     */
+    public class VariableBatch {
+
+        private final Map<String, List<Object>> values = new LinkedHashMap<>();
+
+        public VariableBatch set(@NotNull String variableId, @Nullable Object value) {
+            if (value != null) {
+                values.computeIfAbsent(variableId, id -> new ArrayList<>()).add(value);
+            }
+            return this;
+        }
+
+        public Map<String, Object> apply() {
+            Map<VariableContext, List<Object>> converted = new LinkedHashMap<>();
+            for (Entry<String, List<Object>> entry : values.entrySet()) {
+                VariableContext varContext = getOrCreateContext(entry.getKey());
+                List<Object> items = new ArrayList<>(entry.getValue().size());
+                for (Object value : entry.getValue()) {
+                    items.add(convertAndValidate(varContext, value));
+                }
+                converted.put(varContext, items);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            List<Entry<String, State>> events = new ArrayList<>();
+            Map<String, List<VariableContext>> groups = new HashMap<>();
+            for (Entry<VariableContext, List<Object>> entry : converted.entrySet()) {
+                VariableContext varContext = entry.getKey();
+                String variableId = varContext.variable.getEntityID();
+                List<WorkspaceVariableMessage> messages = new ArrayList<>(entry.getValue().size());
+                for (Object value : entry.getValue()) {
+                    messages.add(new WorkspaceVariableMessage(value));
+                    events.add(Map.entry(variableId, State.of(value)));
+                }
+                varContext.storageService.save(messages);
+                for (WorkspaceVariableMessage message : messages) {
+                    varContext.updateWindows(message.getCreated(), message.getValue());
+                }
+                result.put(variableId, entry.getValue().get(entry.getValue().size() - 1));
+            }
+            context.event().fireEvents(events);
+
+            // one ui update per variable, not per value. Snapshot evaluated lazily same as for single set
+            for (VariableContext varContext : converted.keySet()) {
+                context.ui().updateInnerSetItem(varContext.uiUpdate);
+            }
+
+            for (Entry<VariableContext, List<Object>> entry : converted.entrySet()) {
+                for (Object value : entry.getValue()) {
+                    fireLinkListener(entry.getKey(), value, false);
+                }
+            }
+            return result;
+        }
+    }
+
     @RequiredArgsConstructor
     public static class VariableMetaBuilderImpl implements VariableMetaBuilder, TransformVariableMetaBuilder {
 
@@ -801,7 +1038,10 @@ public class ContextVarImpl implements ContextVar {
     public class TransformVariableContext {
 
         private final VariableContext varContext;
+        private final AtomicBoolean recalculateScheduled = new AtomicBoolean();
         private DynamicVariableSet variables;
+        // null if code not compilable, then evaluator parses code on every recalculation
+        private @Nullable CompiledExpression expression;
         boolean error = false;
 
         public TransformVariableContext(VariableContext varContext) {
@@ -815,11 +1055,26 @@ public class ContextVarImpl implements ContextVar {
             }
         }
 
+        private void onSourceUpdated() {
+            if (transformDebounce.isZero()) {
+                recalculate();
+            } else if (recalculateScheduled.compareAndSet(false, true)) {
+                context.bgp().builder("var-transform-" + varContext.variable.getEntityID())
+                       .delay(transformDebounce)
+                       .hideOnUI(true)
+                       .execute(() -> {
+                           recalculateScheduled.set(false);
+                           recalculate();
+                       });
+            }
+        }
+
         private void recalculate() {
             if (error) {return;}
             try {
-                Double result = (Double) new ExtendedDoubleEvaluator(ContextVarImpl.this)
-                    .evaluate(varContext.variable.getCode(), variables);
+                CompiledExpression expression = this.expression;
+                Double result = (Double) (expression != null ? expression.evaluate() :
+                    new ExtendedDoubleEvaluator(ContextVarImpl.this).evaluate(varContext.variable.getCode(), variables));
                 set(varContext, result, false);
             } catch (Exception ex) {
                 log.warn("Unable to evaluate variable expression: '{}'. Msg: {}", varContext.variable.getCode(), CommonUtils.getErrorMessage(ex));
@@ -835,7 +1090,7 @@ public class ContextVarImpl implements ContextVar {
                                              .toList();
                 for (TransformVariableSourceImpl source : sources) {
                     context.event().addEventBehaviourListener(source.getListenSource(), varContext.variable.getEntityID(), o ->
-                        this.recalculate());
+                        this.onSourceUpdated());
                 }
             } catch (Exception ex) {
                 this.error = true;
@@ -843,6 +1098,12 @@ public class ContextVarImpl implements ContextVar {
                     varContext.variable.getTitle(), CommonUtils.getErrorMessage(ex));
             }
             this.variables = new DynamicVariableSet(sources);
+            this.expression = compile(sources);
+        }
+
+        private @Nullable CompiledExpression compile(List<TransformVariableSourceImpl> sources) {
+            String code = varContext.variable.getCode();
+            return StringUtils.isEmpty(code) ? null : ContextVarImpl.this.compile(code, sources);
         }
 
         public static class ExtendedDoubleEvaluator extends ObjectEvaluator {
@@ -0,0 +1,363 @@
+package org.homio.app.manager.common.impl.javaluator;
+
+import static org.homio.api.entity.HasJsonData.LIST_DELIMITER;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import org.homio.api.entity.widget.AggregationType;
+import org.homio.api.exception.ServerException;
+import org.homio.app.manager.common.impl.ContextVarImpl;
+import org.homio.app.manager.common.impl.ContextVarImpl.TransformVariableSourceImpl;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Transform variable expression parsed once into tree of nodes. Supports same syntax as ExtendedDoubleEvaluator: numbers,
+ * + - * / % ^, unary minus, brackets, DoubleEvaluator functions and constants and aggregation functions. 'VAR[n]' and
+ * 'PT..' names resolved to source accessors and constants at compile time, so evaluation not tokenize and parse anything
+ */
+public final class CompiledExpression {
+
+    private final Node root;
+
+    private CompiledExpression(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @throws IllegalArgumentException if expression syntax not supported by compiler
+     */
+    public static @NotNull CompiledExpression compile(@NotNull String code, @NotNull List<TransformVariableSourceImpl> sources,
+        @NotNull ContextVarImpl var) {
+        Parser parser = new Parser(code, sources, var);
+        Node root = parser.parseExpression();
+        if (parser.pos < code.length()) {
+            throw new IllegalArgumentException("Unexpected '%s' at position %s".formatted(code.charAt(parser.pos), parser.pos));
+        }
+        return new CompiledExpression(root);
+    }
+
+    public Object evaluate() {
+        return root.eval();
+    }
+
+    private interface Node {
+
+        Object eval();
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        throw new IllegalArgumentException(value + " is not a number");
+    }
+
+    private static Node unary(Node node, DoubleUnaryOperator operator) {
+        return () -> operator.applyAsDouble(toDouble(node.eval()));
+    }
+
+    private static Node binary(Node left, Node right, DoubleBinaryOperator operator) {
+        return () -> operator.applyAsDouble(toDouble(left.eval()), toDouble(right.eval()));
+    }
+
+    private static Node checkNaN(String name, Node node) {
+        return () -> {
+            double result = toDouble(node.eval());
+            if (Double.isNaN(result)) {
+                throw new IllegalArgumentException("Invalid argument passed to " + name);
+            }
+            return result;
+        };
+    }
+
+    private static final class Parser {
+
+        private final String code;
+        private final List<TransformVariableSourceImpl> sources;
+        private final ContextVarImpl var;
+        private int pos;
+
+        private Parser(String code, List<TransformVariableSourceImpl> sources, ContextVarImpl var) {
+            this.code = code;
+            this.sources = sources;
+            this.var = var;
+        }
+
+        // expression := term (('+' | '-') term)*
+        private Node parseExpression() {
+            Node node = parseTerm();
+            while (true) {
+                if (accept('+')) {
+                    node = binary(node, parseTerm(), Double::sum);
+                } else if (accept('-')) {
+                    node = binary(node, parseTerm(), (a, b) -> a - b);
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        // term := unary (('*' | '/' | '%') unary)*
+        private Node parseTerm() {
+            Node node = parseUnary();
+            while (true) {
+                if (accept('*')) {
+                    node = binary(node, parseUnary(), (a, b) -> a * b);
+                } else if (accept('/')) {
+                    node = binary(node, parseUnary(), (a, b) -> a / b);
+                } else if (accept('%')) {
+                    node = binary(node, parseUnary(), (a, b) -> a % b);
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        // unary := '-' unary | power. Negate has lower precedence than exponent: -2^2 = -4
+        private Node parseUnary() {
+            if (accept('-')) {
+                return unary(parseUnary(), a -> -a);
+            }
+            return parsePower();
+        }
+
+        // power := primary ('^' (primary | '-' unary))*. Left associative same as DoubleEvaluator exponent: 2^3^2 = 64.
+        // Negate after '^' takes rest of chain because of lower precedence: 2^-3^2 = 2^-(3^2)
+        private Node parsePower() {
+            Node node = parsePrimary();
+            while (accept('^')) {
+                Node exponent = accept('-') ? unary(parseUnary(), a -> -a) : parsePrimary();
+                node = binary(node, exponent, Math::pow);
+            }
+            return node;
+        }
+
+        private Node parsePrimary() {
+            skipWhitespaces();
+            if (pos >= code.length()) {
+                throw new IllegalArgumentException("Unexpected end of expression");
+            }
+            char ch = code.charAt(pos);
+            if (ch == '(') {
+                pos++;
+                Node node = parseExpression();
+                expect(')');
+                return node;
+            }
+            if (Character.isDigit(ch) || ch == '.') {
+                double value = parseNumber();
+                return () -> value;
+            }
+            if (ch == '\'') {
+                return parseQuoted();
+            }
+            if (Character.isLetter(ch) || ch == '_') {
+                String name = parseIdentifier();
+                if (accept('(')) {
+                    return parseFunction(name, parseArguments());
+                }
+                return resolveName(name);
+            }
+            throw new IllegalArgumentException("Unexpected '%s' at position %s".formatted(ch, pos));
+        }
+
+        private List<Node> parseArguments() {
+            List<Node> arguments = new ArrayList<>();
+            if (accept(')')) {
+                return arguments;
+            }
+            do {
+                arguments.add(parseExpression());
+            } while (accept(','));
+            expect(')');
+            return arguments;
+        }
+
+        private Node parseFunction(String name, List<Node> args) {
+            for (AggregationType aggregationType : AggregationType.values()) {
+                if (aggregationType != AggregationType.None && aggregationType.name().equals(name)) {
+                    assertArguments(name, args, 1, 3);
+                    return aggregate(aggregationType, args);
+                }
+            }
+            return switch (name) {
+                case "abs" -> fn1(name, args, Math::abs);
+                case "ceil" -> fn1(name, args, Math::ceil);
+                case "floor" -> fn1(name, args, Math::floor);
+                case "round" -> fn1(name, args, a -> Double.isInfinite(a) ? a : (double) Math.round(a));
+                case "sinh" -> fn1(name, args, Math::sinh);
+                case "cosh" -> fn1(name, args, Math::cosh);
+                case "tanh" -> fn1(name, args, Math::tanh);
+                case "sin" -> fn1(name, args, Math::sin);
+                case "cos" -> fn1(name, args, Math::cos);
+                case "tan" -> fn1(name, args, Math::tan);
+                case "acos" -> fn1(name, args, Math::acos);
+                case "asin" -> fn1(name, args, Math::asin);
+                case "atan" -> fn1(name, args, Math::atan);
+                case "ln" -> fn1(name, args, Math::log);
+                case "log" -> fn1(name, args, Math::log10);
+                case "min" -> fnN(name, args, Math::min);
+                case "max" -> fnN(name, args, Math::max);
+                case "sum" -> fnN(name, args, Double::sum);
+                case "avg" -> {
+                    Node sum = fnN(name, args, Double::sum);
+                    int count = args.size();
+                    yield checkNaN(name, () -> toDouble(sum.eval()) / count);
+                }
+                case "random" -> {
+                    assertArguments(name, args, 0, 0);
+                    yield Math::random;
+                }
+                default -> throw new IllegalArgumentException("Unknown function: " + name);
+            };
+        }
+
+        private Node aggregate(AggregationType aggregationType, List<Node> args) {
+            Node varIdNode = args.get(0);
+            Node fromNode = args.size() > 1 ? args.get(1) : null;
+            Node toNode = args.size() > 2 ? args.get(2) : null;
+            return () -> {
+                String varId = varIdNode.eval().toString();
+                if (varId.contains(LIST_DELIMITER)) {
+                    throw new IllegalArgumentException("Unable to aggregate value with no variable type");
+                }
+                Object value;
+                if (fromNode != null && toNode == null) {
+                    // sliding window till now answered from incremental window state
+                    value = var.aggregateWindow(varId, Duration.ofSeconds((int) toDouble(fromNode.eval())), aggregationType);
+                } else {
+                    Long from = fromNode == null ? null : getSince(toDouble(fromNode.eval()));
+                    Long to = toNode == null ? null : getSince(toDouble(toNode.eval()));
+                    value = var.aggregate(varId, from, to, aggregationType, true);
+                }
+                return value == null ? 0D : ((Number) value).doubleValue();
+            };
+        }
+
+        private static Long getSince(double seconds) {
+            return System.currentTimeMillis() - (int) seconds * 1000L;
+        }
+
+        private static Node fn1(String name, List<Node> args, DoubleUnaryOperator operator) {
+            assertArguments(name, args, 1, 1);
+            return checkNaN(name, unary(args.get(0), operator));
+        }
+
+        private static Node fnN(String name, List<Node> args, DoubleBinaryOperator operator) {
+            assertArguments(name, args, 1, Integer.MAX_VALUE);
+            Node[] nodes = args.toArray(new Node[0]);
+            return checkNaN(name, () -> {
+                double result = toDouble(nodes[0].eval());
+                for (int i = 1; i < nodes.length; i++) {
+                    result = operator.applyAsDouble(result, toDouble(nodes[i].eval()));
+                }
+                return result;
+            });
+        }
+
+        private static void assertArguments(String name, List<Node> args, int min, int max) {
+            if (args.size() < min || args.size() > max) {
+                throw new IllegalArgumentException("Invalid argument count for " + name);
+            }
+        }
+
+        private Node resolveName(String name) {
+            if (name.equals("pi")) {
+                return () -> Math.PI;
+            }
+            if (name.equals("e")) {
+                return () -> Math.E;
+            }
+            if (name.startsWith("VAR")) {
+                TransformVariableSourceImpl source = getSource(name.substring("VAR".length()));
+                return () -> {
+                    Number number = source.getHandler().getValue();
+                    return number == null ? 0D : number.doubleValue();
+                };
+            }
+            if (name.startsWith("PT")) {
+                double seconds = Duration.parse(name).getSeconds();
+                return () -> seconds;
+            }
+            throw new IllegalArgumentException("Unknown variable: " + name);
+        }
+
+        // 'VAR[n]' resolves to source listen id, uses as aggregation function argument
+        private Node parseQuoted() {
+            int end = code.indexOf('\'', pos + 1);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed quote at position " + pos);
+            }
+            String name = code.substring(pos + 1, end);
+            pos = end + 1;
+            if (!name.startsWith("VAR")) {
+                throw new IllegalArgumentException("Unknown variable: '" + name + "'");
+            }
+            String listenSource = getSource(name.substring("VAR".length())).getListenSource();
+            return () -> listenSource;
+        }
+
+        private TransformVariableSourceImpl getSource(String indexStr) {
+            int index = Integer.parseInt(indexStr);
+            if (sources.size() <= index) {
+                throw new ServerException("Unable to find 'VAR%s'".formatted(index));
+            }
+            return sources.get(index);
+        }
+
+        private double parseNumber() {
+            int start = pos;
+            while (pos < code.length() && (Character.isDigit(code.charAt(pos)) || code.charAt(pos) == '.')) {
+                pos++;
+            }
+            // scientific notation: 1E+50
+            if (pos < code.length() && (code.charAt(pos) == 'e' || code.charAt(pos) == 'E')) {
+                int exponent = pos + 1;
+                if (exponent < code.length() && (code.charAt(exponent) == '+' || code.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < code.length() && Character.isDigit(code.charAt(exponent))) {
+                    pos = exponent;
+                    while (pos < code.length() && Character.isDigit(code.charAt(pos))) {
+                        pos++;
+                    }
+                }
+            }
+            return Double.parseDouble(code.substring(start, pos).toUpperCase(Locale.ROOT));
+        }
+
+        private String parseIdentifier() {
+            int start = pos;
+            while (pos < code.length() && (Character.isLetterOrDigit(code.charAt(pos)) || code.charAt(pos) == '_'
+                || (code.charAt(pos) == '.' && code.startsWith("PT", start)))) {
+                pos++;
+            }
+            return code.substring(start, pos);
+        }
+
+        private boolean accept(char ch) {
+            skipWhitespaces();
+            if (pos < code.length() && code.charAt(pos) == ch) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char ch) {
+            if (!accept(ch)) {
+                throw new IllegalArgumentException("Expected '%s' at position %s".formatted(ch, pos));
+            }
+        }
+
+        private void skipWhitespaces() {
+            while (pos < code.length() && Character.isWhitespace(code.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
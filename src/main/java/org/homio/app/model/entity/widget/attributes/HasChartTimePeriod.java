@@ -67,13 +67,14 @@ public interface HasChartTimePeriod extends HasJsonData {
             @Override
             public TimeRange snapshot() {
                 long to = System.currentTimeMillis();
-                long from = to - TimeUnit.MINUTES.toMillis(minutes);
-
                 double requiredNumOfPoints = Math.ceil(minutes * pointsPerHour / 60F);
-                double diff = (to - from) / requiredNumOfPoints;
+                long diff = Math.max(1, (long) (TimeUnit.MINUTES.toMillis(minutes) / requiredNumOfPoints));
+                // align buckets to epoch, so snapshots has same buckets until time rolls into next one
+                long from = Math.floorDiv(to - TimeUnit.MINUTES.toMillis(minutes), diff) * diff;
+
                 List<Date> dates = new ArrayList<>();
                 for (int i = 0; i < requiredNumOfPoints; i++) {
-                    dates.add(new Date((long) (from + i * diff)));
+                    dates.add(new Date(from + i * diff));
                 }
                 return new TimeRange(new Date(from), null, dates);
             }
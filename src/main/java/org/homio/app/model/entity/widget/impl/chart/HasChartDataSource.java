@@ -10,7 +10,6 @@ import org.homio.api.ui.field.selection.UIFieldBeanSelection;
 import org.homio.api.ui.field.selection.UIFieldEntityByClassSelection;
 import org.homio.app.model.entity.widget.UIEditReloadWidget;
 import org.homio.app.rest.widget.ChartDataset;
-import org.homio.app.rest.widget.EvaluateDatesAndValues;
 import org.homio.app.rest.widget.TimeSeriesContext;
 
 public interface HasChartDataSource extends HasJsonData {
@@ -116,8 +115,8 @@ public interface HasChartDataSource extends HasJsonData {
         HasChartDataSource seriesEntity = item.getSeriesEntity();
         String entityID = ((HasEntityIdentifier) seriesEntity).getEntityID();
         ChartDataset dataset = new ChartDataset(item.getId(), entityID).setLabel(seriesEntity.getChartLabel());
-        if (item.getValues() != null && !item.getValues().isEmpty()) {
-            dataset.setData(EvaluateDatesAndValues.aggregate(item.getValues(), seriesEntity.getChartAggregationType()));
+        if (item.getBuckets() != null && item.getBuckets().size() > 0) {
+            dataset.setData(item.getBuckets().aggregate());
         }
         return dataset;
     }
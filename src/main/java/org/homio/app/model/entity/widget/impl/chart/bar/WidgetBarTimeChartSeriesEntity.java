@@ -10,7 +10,6 @@ import org.homio.app.model.entity.widget.UIEditReloadWidget;
 import org.homio.app.model.entity.widget.WidgetSeriesEntity;
 import org.homio.app.model.entity.widget.impl.chart.HasChartDataSource;
 import org.homio.app.rest.widget.ChartDataset;
-import org.homio.app.rest.widget.EvaluateDatesAndValues;
 import org.homio.app.rest.widget.TimeSeriesContext;
 import org.jetbrains.annotations.NotNull;
 
@@ -22,12 +21,10 @@ public class WidgetBarTimeChartSeriesEntity extends WidgetSeriesEntity<WidgetBar
 
     @Override
     public ChartDataset buildTargetDataset(TimeSeriesContext item) {
-        WidgetBarTimeChartSeriesEntity seriesEntity =
-                (WidgetBarTimeChartSeriesEntity) item.getSeriesEntity();
         ChartDataset dataset = new ChartDataset(item.getId(), ((HasEntityIdentifier) item.getSeriesEntity()).getEntityID());
 
-        if (item.getValues() != null && !item.getValues().isEmpty()) {
-            dataset.setData(EvaluateDatesAndValues.aggregate(item.getValues(), seriesEntity.getChartAggregationType()));
+        if (item.getBuckets() != null && item.getBuckets().size() > 0) {
+            dataset.setData(item.getBuckets().aggregate());
         }
         return dataset;
     }
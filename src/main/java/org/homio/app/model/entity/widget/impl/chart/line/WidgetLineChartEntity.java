@@ -12,6 +12,7 @@ import org.homio.app.model.entity.widget.impl.chart.ChartBaseEntity;
 import org.homio.app.model.entity.widget.impl.chart.HasAxis;
 import org.homio.app.model.entity.widget.impl.chart.HasHorizontalLine;
 import org.homio.app.model.entity.widget.impl.chart.HasLineChartBehaviour;
+import org.homio.app.rest.widget.ChartDownsampler;
 import org.jetbrains.annotations.NotNull;
 
 @Getter
@@ -28,6 +29,16 @@ public class WidgetLineChartEntity
         return HasPadding.super.getPadding();
     }
 
+    @UIField(order = 7)
+    @UIFieldGroup("CHART_UI")
+    public ChartDownsampler.Mode getDownsampling() {
+        return getJsonDataEnum("ds", ChartDownsampler.Mode.None);
+    }
+
+    public void setDownsampling(ChartDownsampler.Mode value) {
+        setJsonDataEnum("ds", value);
+    }
+
     @Override
     public @NotNull String getImage() {
         return "fas fa-chart-line";
@@ -16,6 +16,10 @@ public class WidgetDataRequest {
     @NotNull
     private String entityID;
     private String liveEntity;
+    // number of points client able to draw. Uses for line chart downsampling
+    private Integer targetPoints;
+    // client able to merge chart 'delta' updates. Clients without it receives full chart data on every update
+    private boolean deltaUpdates;
 
     @SneakyThrows
     public <T extends BaseEntity> T getEntity(
@@ -136,6 +136,20 @@ public class WorkspaceVariable extends BaseEntity
         return super.getName();
     }
 
+    /**
+     * Keep values not older than N days in addition to quota. 0 - no time restriction
+     */
+    @UIField(order = 26)
+    @UIFieldSlider(min = 0, max = 365)
+    public int getRetentionDays() {
+        return getJsonData("rd", 0);
+    }
+
+    public WorkspaceVariable setRetentionDays(int value) {
+        setJsonData("rd", value <= 0 ? null : value);
+        return this;
+    }
+
     @UIField(order = 30, hideInEdit = true, disableEdit = true)
     @UIFieldProgress
     public UIFieldProgress.Progress getUsedQuota() {
@@ -1,7 +1,5 @@
 package org.homio.app.rest;
 
-import static org.homio.app.rest.widget.EvaluateDatesAndValues.convertValuesToFloat;
-
 import com.fathzer.soft.javaluator.Constant;
 import com.fathzer.soft.javaluator.DoubleEvaluator;
 import com.fathzer.soft.javaluator.Operator;
@@ -37,8 +35,8 @@ import org.homio.api.util.DataSourceUtil.SelectionSource;
 import org.homio.app.manager.common.ContextImpl;
 import org.homio.app.model.var.WorkspaceGroup;
 import org.homio.app.model.var.WorkspaceVariable;
+import org.homio.app.rest.widget.ChartBuckets;
 import org.homio.app.rest.widget.ChartDataset;
-import org.homio.app.rest.widget.EvaluateDatesAndValues;
 import org.homio.app.rest.widget.WidgetChartsController;
 import org.homio.app.rest.widget.WidgetChartsController.TimeSeriesChartData;
 import org.json.JSONObject;
@@ -203,9 +201,8 @@ public class VariableController {
             List<Date> dates = IntStream.range(0, request.splitCount)
                                         .mapToObj(value -> new Date(min + delta * value))
                                         .collect(Collectors.toList());
-            List<List<Float>> values = convertValuesToFloat(dates, rawValues);
             chartData.setTimestamp(dates.stream().map(Date::getTime).collect(Collectors.toList()));
-            dataset.setData(EvaluateDatesAndValues.aggregate(values, AggregationType.Average));
+            dataset.setData(ChartBuckets.of(dates, AggregationType.Average).addAll(rawValues).aggregate());
             chartData.getDatasets().add(dataset);
         }
         return chartData;
@@ -0,0 +1,314 @@
+package org.homio.app.rest.widget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.homio.api.entity.widget.AggregationType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Splits chart samples into time buckets and aggregates them on the fly. Bucket lookup is direct arithmetic for uniform
+ * boundaries and binary search otherwise. Every bucket keeps only primitive accumulators, Median uses P-square sketch, so
+ * memory does not depend on number of samples.
+ */
+public final class ChartBuckets {
+
+    // keep exact values for median until bucket has more samples than this
+    private static final int EXACT_MEDIAN_LIMIT = 32;
+
+    private final long[] boundaries;
+    // > 0 if all buckets has same width
+    private final long step;
+    private final AggregationType aggregationType;
+
+    private final int[] counts;
+    private final int[] nonZeroCounts;
+    private final double[] sums;
+    private final float[] mins;
+    private final float[] maxs;
+    private final float[] firsts;
+    private final float[] lasts;
+    // only for Median
+    private final MedianSketch[] medians;
+    // only for aggregations which evaluates by AggregationType itself
+    private final FloatBuffer[] raw;
+
+    public ChartBuckets(long @NotNull [] boundaries, @NotNull AggregationType aggregationType) {
+        this.boundaries = boundaries;
+        this.step = detectStep(boundaries);
+        this.aggregationType = aggregationType;
+        int size = boundaries.length;
+        counts = new int[size];
+        nonZeroCounts = new int[size];
+        sums = new double[size];
+        mins = new float[size];
+        maxs = new float[size];
+        firsts = new float[size];
+        lasts = new float[size];
+        medians = aggregationType == AggregationType.Median ? new MedianSketch[size] : null;
+        raw = isNative(aggregationType) ? null : new FloatBuffer[size];
+    }
+
+    public static @NotNull ChartBuckets of(@NotNull List<Date> dates, @NotNull AggregationType aggregationType) {
+        return new ChartBuckets(dates.stream().mapToLong(Date::getTime).toArray(), aggregationType);
+    }
+
+    public int size() {
+        return boundaries.length;
+    }
+
+    /**
+     * @return bucket index of timestamp or -1 if timestamp before first bucket. Last bucket is open-ended
+     */
+    public int indexOf(long time) {
+        int size = boundaries.length;
+        if (size == 0 || time < boundaries[0]) {
+            return -1;
+        }
+        if (step > 0) {
+            long index = (time - boundaries[0]) / step;
+            return index >= size ? size - 1 : (int) index;
+        }
+        int index = Arrays.binarySearch(boundaries, time);
+        if (index < 0) {
+            return -index - 2;
+        }
+        while (index + 1 < size && boundaries[index + 1] == time) {
+            index++;
+        }
+        return index;
+    }
+
+    public void add(long time, float value) {
+        int index = indexOf(time);
+        if (index >= 0) {
+            addToBucket(index, value);
+        }
+    }
+
+    /**
+     * Add chart items in [timestamp(long or Date), Number] format
+     */
+    public @NotNull ChartBuckets addAll(@NotNull List<Object[]> chartItems) {
+        for (Object[] chartItem : chartItems) {
+            long time = chartItem[0] instanceof Date ? ((Date) chartItem[0]).getTime() : (long) chartItem[0];
+            add(time, ((Number) chartItem[1]).floatValue());
+        }
+        return this;
+    }
+
+    /**
+     * @return aggregated value per bucket, null for empty buckets
+     */
+    public @NotNull List<Float> aggregate() {
+        List<Float> result = new ArrayList<>(boundaries.length);
+        for (int i = 0; i < boundaries.length; i++) {
+            result.add(aggregate(i));
+        }
+        return result;
+    }
+
+    public @Nullable Float aggregate(int index) {
+        int count = counts[index];
+        if (count == 0) {
+            return null;
+        }
+        if (count == 1) {
+            return firsts[index];
+        }
+        return switch (aggregationType) {
+            case First -> firsts[index];
+            case Last -> lasts[index];
+            case Min -> mins[index];
+            case Max -> maxs[index];
+            case Count -> (float) count;
+            case Sum -> (float) sums[index];
+            case Average -> (float) (sums[index] / count);
+            case AverageNoZero -> nonZeroCounts[index] == 0 ? 0F : (float) (sums[index] / nonZeroCounts[index]);
+            case Median -> medians[index].median();
+            default -> raw[index].evaluate(aggregationType);
+        };
+    }
+
+    private void addToBucket(int index, float value) {
+        int count = counts[index];
+        if (count == 0) {
+            firsts[index] = value;
+            mins[index] = value;
+            maxs[index] = value;
+        } else {
+            mins[index] = Math.min(mins[index], value);
+            maxs[index] = Math.max(maxs[index], value);
+        }
+        lasts[index] = value;
+        sums[index] += value;
+        if (value != 0) {
+            nonZeroCounts[index]++;
+        }
+        counts[index] = count + 1;
+        if (medians != null) {
+            if (medians[index] == null) {
+                medians[index] = new MedianSketch();
+            }
+            medians[index].add(value);
+        }
+        if (raw != null) {
+            if (raw[index] == null) {
+                raw[index] = new FloatBuffer();
+            }
+            raw[index].add(value);
+        }
+    }
+
+    private static boolean isNative(AggregationType aggregationType) {
+        return switch (aggregationType) {
+            case First, Last, Min, Max, Count, Sum, Average, AverageNoZero, Median -> true;
+            default -> false;
+        };
+    }
+
+    private static long detectStep(long[] boundaries) {
+        if (boundaries.length < 2) {
+            return 0;
+        }
+        long step = boundaries[1] - boundaries[0];
+        if (step <= 0) {
+            return 0;
+        }
+        for (int i = 2; i < boundaries.length; i++) {
+            if (boundaries[i] - boundaries[i - 1] != step) {
+                return 0;
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Streaming median estimation (P-square algorithm, Jain & Chlamtac). Exact while number of values is small
+     */
+    private static final class MedianSketch {
+
+        private float[] exact = new float[8];
+        private int count;
+        // P-square markers
+        private double[] heights;
+        private int[] positions;
+        private double[] desired;
+
+        private void add(float value) {
+            if (heights == null) {
+                if (count == exact.length) {
+                    exact = Arrays.copyOf(exact, exact.length * 2);
+                }
+                exact[count++] = value;
+                if (count > EXACT_MEDIAN_LIMIT) {
+                    initSketch();
+                }
+                return;
+            }
+            count++;
+            addToSketch(value);
+        }
+
+        private float median() {
+            if (heights == null) {
+                float[] sorted = Arrays.copyOf(exact, count);
+                Arrays.sort(sorted);
+                int middle = count / 2;
+                return count % 2 == 0 ? (sorted[middle - 1] + sorted[middle]) / 2 : sorted[middle];
+            }
+            return (float) heights[2];
+        }
+
+        private void initSketch() {
+            float[] values = exact;
+            int size = count;
+            exact = null;
+            heights = new double[5];
+            positions = new int[5];
+            desired = new double[5];
+            float[] initial = Arrays.copyOf(values, 5);
+            Arrays.sort(initial);
+            for (int i = 0; i < 5; i++) {
+                heights[i] = initial[i];
+                positions[i] = i + 1;
+            }
+            desired[0] = 1;
+            desired[1] = 2;
+            desired[2] = 3;
+            desired[3] = 4;
+            desired[4] = 5;
+            count = 5;
+            for (int i = 5; i < size; i++) {
+                count++;
+                addToSketch(values[i]);
+            }
+        }
+
+        private void addToSketch(double value) {
+            int k;
+            if (value < heights[0]) {
+                heights[0] = value;
+                k = 0;
+            } else if (value >= heights[4]) {
+                heights[4] = Math.max(heights[4], value);
+                k = 3;
+            } else {
+                k = 0;
+                while (k < 3 && value >= heights[k + 1]) {
+                    k++;
+                }
+            }
+            for (int i = k + 1; i < 5; i++) {
+                positions[i]++;
+            }
+            // desired positions for p = 0.5: 1, 1 + (n-1)/4, 1 + (n-1)/2, 1 + 3(n-1)/4, n
+            desired[1] += 0.25;
+            desired[2] += 0.5;
+            desired[3] += 0.75;
+            desired[4] += 1;
+            for (int i = 1; i <= 3; i++) {
+                double d = desired[i] - positions[i];
+                if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int sign = d > 0 ? 1 : -1;
+                    double parabolic = heights[i] + (double) sign / (positions[i + 1] - positions[i - 1])
+                        * ((positions[i] - positions[i - 1] + sign) * (heights[i + 1] - heights[i]) / (positions[i + 1] - positions[i])
+                        + (positions[i + 1] - positions[i] - sign) * (heights[i] - heights[i - 1]) / (positions[i] - positions[i - 1]));
+                    if (heights[i - 1] < parabolic && parabolic < heights[i + 1]) {
+                        heights[i] = parabolic;
+                    } else {
+                        heights[i] += sign * (heights[i + sign] - heights[i]) / (positions[i + sign] - positions[i]);
+                    }
+                    positions[i] += sign;
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable primitive buffer for aggregations without streaming implementation
+     */
+    private static final class FloatBuffer {
+
+        private float[] values = new float[8];
+        private int size;
+
+        private void add(float value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private Float evaluate(AggregationType aggregationType) {
+            float[] items = Arrays.copyOf(values, size);
+            if (aggregationType.isRequireSorting()) {
+                Arrays.sort(items);
+            }
+            return aggregationType.evaluate(IntStream.range(0, size).mapToObj(i -> items[i]));
+        }
+    }
+}
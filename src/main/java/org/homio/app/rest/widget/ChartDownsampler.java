@@ -0,0 +1,187 @@
+package org.homio.app.rest.widget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.homio.app.rest.widget.WidgetChartsController.TimeSeriesChartData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Visual downsampling of raw series samples to number of points which client able to draw. Every series is downsampled
+ * separately, then picked samples are merged on shared timestamp axis.
+ */
+public record ChartDownsampler(@NotNull Mode mode, int targetPoints) {
+
+    public static @Nullable ChartDownsampler of(@Nullable Mode mode, @Nullable Integer targetPoints) {
+        if (mode == null || mode == Mode.None || targetPoints == null || targetPoints < 3) {
+            return null;
+        }
+        return new ChartDownsampler(mode, targetPoints);
+    }
+
+    /**
+     * Fill timestamps and dataset values from raw samples. Dataset has null value at timestamps picked only for other datasets
+     *
+     * @param samples - raw [timestamp, value] samples of every dataset, same order as data.getDatasets()
+     */
+    public void apply(@NotNull TimeSeriesChartData<ChartDataset> data, @NotNull List<List<Object[]>> samples) {
+        List<List<Object[]>> picked = new ArrayList<>(samples.size());
+        int total = 0;
+        for (List<Object[]> series : samples) {
+            List<Object[]> points = downsample(series);
+            picked.add(points);
+            total += points.size();
+        }
+
+        long[] timestamps = new long[total];
+        int index = 0;
+        for (List<Object[]> points : picked) {
+            for (Object[] point : points) {
+                timestamps[index++] = (long) point[0];
+            }
+        }
+        Arrays.sort(timestamps);
+        int size = 0;
+        for (int i = 0; i < total; i++) {
+            if (size == 0 || timestamps[size - 1] != timestamps[i]) {
+                timestamps[size++] = timestamps[i];
+            }
+        }
+
+        List<Long> axis = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            axis.add(timestamps[i]);
+        }
+        data.setTimestamp(axis);
+        for (int d = 0; d < picked.size(); d++) {
+            Float[] values = new Float[size];
+            for (Object[] point : picked.get(d)) {
+                values[Arrays.binarySearch(timestamps, 0, size, (long) point[0])] = ((Number) point[1]).floatValue();
+            }
+            data.getDatasets().get(d).setData(Arrays.asList(values));
+        }
+    }
+
+    /**
+     * @param samples - raw [timestamp, value] samples. Samples without numeric value are skipped
+     * @return picked samples ordered by timestamp. First and last samples are always kept
+     */
+    public @NotNull List<Object[]> downsample(@NotNull List<Object[]> samples) {
+        List<Object[]> points = new ArrayList<>(samples.size());
+        for (Object[] sample : samples) {
+            if (sample[1] instanceof Number) {
+                points.add(sample);
+            }
+        }
+        points.sort(Comparator.comparingLong(point -> (long) point[0]));
+        int size = points.size();
+        if (size <= targetPoints) {
+            return points;
+        }
+
+        long[] timestamps = new long[size];
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = (long) points.get(i)[0];
+            values[i] = ((Number) points.get(i)[1]).floatValue();
+        }
+        boolean[] keep = mode == Mode.LTTB ? lttb(timestamps, values) : minMax(timestamps, values);
+        List<Object[]> result = new ArrayList<>(targetPoints);
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                result.add(points.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets
+     */
+    private boolean[] lttb(long[] timestamps, float[] values) {
+        int size = timestamps.length;
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+
+        double bucketSize = (double) (size - 2) / (targetPoints - 2);
+        int selected = 0;
+        for (int bucket = 0; bucket < targetPoints - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = Math.min((int) ((bucket + 1) * bucketSize) + 1, size - 1);
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += timestamps[i];
+                avgY += values[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double maxArea = -1;
+            int maxIndex = start;
+            double ax = timestamps[selected];
+            double ay = values[selected];
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (values[i] - ay) - (ax - timestamps[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            if (start < end) {
+                keep[maxIndex] = true;
+                selected = maxIndex;
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * Keep min and max sample per pixel column. Columns split time range evenly
+     */
+    private boolean[] minMax(long[] timestamps, float[] values) {
+        int size = timestamps.length;
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+        int columns = Math.max(1, (targetPoints - 2) / 2);
+        long from = timestamps[0];
+        double columnWidth = (double) (timestamps[size - 1] - from + 1) / columns;
+        int[] minIndexes = new int[columns];
+        int[] maxIndexes = new int[columns];
+        Arrays.fill(minIndexes, -1);
+        for (int i = 0; i < size; i++) {
+            int column = Math.min(columns - 1, (int) ((timestamps[i] - from) / columnWidth));
+            if (minIndexes[column] == -1) {
+                minIndexes[column] = i;
+                maxIndexes[column] = i;
+            } else if (values[i] < values[minIndexes[column]]) {
+                minIndexes[column] = i;
+            } else if (values[i] > values[maxIndexes[column]]) {
+                maxIndexes[column] = i;
+            }
+        }
+        for (int column = 0; column < columns; column++) {
+            if (minIndexes[column] != -1) {
+                keep[minIndexes[column]] = true;
+                keep[maxIndexes[column]] = true;
+            }
+        }
+        return keep;
+    }
+
+    public enum Mode {
+        None,
+        // Largest-Triangle-Three-Buckets, keeps visual shape
+        LTTB,
+        // min and max sample per pixel column, keeps peaks
+        MinMax
+    }
+}
@@ -5,31 +5,13 @@ import org.homio.api.ui.field.selection.dynamic.HasDynamicParameterFields;
 import org.homio.app.model.entity.widget.attributes.HasChartTimePeriod;
 import org.homio.app.model.entity.widget.impl.chart.HasChartDataSource;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 public final class EvaluateDatesAndValues {
 
-    public static List<Float> aggregate(List<List<Float>> values, AggregationType aggregationType) {
-        return values.stream().map(items -> {
-                    if (items.isEmpty()) {
-                        return null;
-                    } else if (items.size() == 1) {
-                        return items.get(0);
-                    }
-                    Stream<Float> stream = items.stream();
-                    if (aggregationType.isRequireSorting()) {
-                        stream = stream.sorted();
-                    }
-                    return aggregationType.evaluate(stream);
-                })
-                .collect(Collectors.toList());
-    }
-
     public static <T extends HasDynamicParameterFields & HasChartDataSource>
     List<Date> calculateDates(
             HasChartTimePeriod.TimeRange timeRange,
@@ -81,34 +63,18 @@ public final class EvaluateDatesAndValues {
         return dates;
     }
 
-    public static List<List<Float>> convertValuesToFloat(List<Date> dates, List<Object[]> chartItems) {
-        List<List<Float>> values = new ArrayList<>(dates.size());
-        IntStream.range(0, dates.size()).forEach(value -> values.add(new ArrayList<>()));
-        // push values to date between buckets
-        for (Object[] chartItem : chartItems) {
-            long time =
-                    chartItem[0] instanceof Date
-                            ? ((Date) chartItem[0]).getTime()
-                            : (long) chartItem[0];
-            int index = getDateIndex(dates, time);
-            if (index >= 0) {
-                values.get(index).add(((Number) chartItem[1]).floatValue());
-            }
-        }
-        return values;
-    }
-
     private static <T extends HasDynamicParameterFields & HasChartDataSource> void fulfillValues(
             List<Date> dates, List<TimeSeriesValues<T>> timeSeriesValues) {
         //  List<Iterator<List<Float>>> fullChartValueIterators = new ArrayList<>();
+        long[] boundaries = dates.stream().mapToLong(Date::getTime).toArray();
 
         for (TimeSeriesValues<T> timeSeriesValue : timeSeriesValues) {
             for (TimeSeriesContext<T> timeSeriesContext : timeSeriesValue.getItemSeries()) {
                 if (timeSeriesContext.getValue().isEmpty()) {
                     continue;
                 }
-                List<List<Float>> values = convertValuesToFloat(dates, timeSeriesContext.getValue());
-                timeSeriesContext.setValues(values);
+                AggregationType aggregationType = timeSeriesContext.getSeriesEntity().getChartAggregationType();
+                timeSeriesContext.setBuckets(new ChartBuckets(boundaries, aggregationType).addAll(timeSeriesContext.getValue()));
 
                 //  fullChartValueIterators.add(values.iterator());
             }
@@ -130,13 +96,4 @@ public final class EvaluateDatesAndValues {
             }
         }*/
     }
-
-    private static int getDateIndex(List<Date> dateList, long time) {
-        for (int i = 0; i < dateList.size(); i++) {
-            if (time < dateList.get(i).getTime()) {
-                return i - 1;
-            }
-        }
-        return dateList.size() - 1;
-    }
 }
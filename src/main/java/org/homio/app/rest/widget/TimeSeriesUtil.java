@@ -6,10 +6,13 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -40,10 +43,38 @@ import org.json.JSONObject;
 public class TimeSeriesUtil {
 
     private final ContextImpl context;
+    // widget entityID -> bucket state of last sent chart data. Uses to send only changed points on source updates
+    private final Map<String, ChartStateHolder> chartStates = new ConcurrentHashMap<>();
 
     public <T extends HasDynamicParameterFields & HasChartDataSource> WidgetChartsController.TimeSeriesChartData<ChartDataset>
     buildTimeSeriesFullData(String entityID, HasChartTimePeriod.TimePeriod timePeriod,
                             boolean addUpdateListener, Set<T> series) {
+        return buildTimeSeriesFullData(entityID, timePeriod, addUpdateListener, series, null, false);
+    }
+
+    /**
+     * @param downsampler  - build chart from downsampled raw samples instead of period buckets. Updates are sent in full
+     * @param deltaUpdates - client able to merge delta updates. Chart updates are sent in full while any client not supports it
+     */
+    public <T extends HasDynamicParameterFields & HasChartDataSource> WidgetChartsController.TimeSeriesChartData<ChartDataset>
+    buildTimeSeriesFullData(String entityID, HasChartTimePeriod.TimePeriod timePeriod,
+                            boolean addUpdateListener, Set<T> series, @Nullable ChartDownsampler downsampler, boolean deltaUpdates) {
+        ChartStateHolder holder = addUpdateListener ? getOrCreateChartState(entityID) : chartStates.get(entityID);
+        if (holder == null) {
+            return buildTimeSeriesFullData(entityID, timePeriod, false, series, downsampler, null);
+        }
+        // build and swap state under same lock as delta updates, so delta never updates replaced state
+        synchronized (holder) {
+            if (addUpdateListener && !deltaUpdates) {
+                holder.fullUpdates = true;
+            }
+            return buildTimeSeriesFullData(entityID, timePeriod, addUpdateListener, series, downsampler, holder);
+        }
+    }
+
+    private <T extends HasDynamicParameterFields & HasChartDataSource> WidgetChartsController.TimeSeriesChartData<ChartDataset>
+    buildTimeSeriesFullData(String entityID, HasChartTimePeriod.TimePeriod timePeriod, boolean addUpdateListener,
+                            Set<T> series, @Nullable ChartDownsampler downsampler, @Nullable ChartStateHolder holder) {
 
         List<TimeSeriesValues<T>> timeSeriesValuesList = new ArrayList<>(series.size());
 
@@ -62,47 +93,116 @@ public class TimeSeriesUtil {
         WidgetChartsController.TimeSeriesChartData<ChartDataset>
                 timeSeriesChartData = new WidgetChartsController.TimeSeriesChartData<>();
 
-        if (!timeSeriesValuesList.isEmpty()) {
-            List<Date> dates = EvaluateDatesAndValues.calculateDates(timeRange, timeSeriesValuesList);
+        List<Date> dates = Collections.emptyList();
+        // raw samples are downsampled instead of aggregated into period buckets
+        if (!timeSeriesValuesList.isEmpty() && downsampler == null) {
+            dates = EvaluateDatesAndValues.calculateDates(timeRange, timeSeriesValuesList);
             timeSeriesChartData.setTimestamp(dates.stream().map(Date::getTime).collect(Collectors.toList()));
         }
 
+        List<List<Object[]>> samples = new ArrayList<>();
         for (TimeSeriesValues<T> timeSeriesValues : timeSeriesValuesList) {
             for (TimeSeriesContext<T> item : timeSeriesValues.getItemSeries()) {
                 T seriesEntity = item.getSeriesEntity();
                 timeSeriesChartData.getDatasets().add(seriesEntity.buildTargetDataset(item));
+                samples.add(item.getValue());
 
                 // add update listeners
                 if (addUpdateListener) {
-                    addChangeListenerForTimeSeriesEntity(item, timePeriod, entityID, series, timeSeriesValues.getSource());
+                    addChangeListenerForTimeSeriesEntity(item, timePeriod, entityID, series, timeSeriesValues.getSource(), downsampler);
                 }
             }
         }
+        if (downsampler != null) {
+            downsampler.apply(timeSeriesChartData, samples);
+        }
+        if (holder != null) {
+            // downsampled chart has no buckets to apply delta to, so it's always rebuilt
+            holder.state = downsampler == null ? new ChartState(dates, timeSeriesChartData.getDatasets()) : null;
+        }
 
         return timeSeriesChartData;
     }
 
     public <T extends HasDynamicParameterFields & HasChartDataSource> void addChangeListenerForTimeSeriesEntity(
             TimeSeriesContext<T> timeSeriesContext,
-            HasChartTimePeriod.TimePeriod timePeriod, String entityID, Set<T> series, Object source) {
+            HasChartTimePeriod.TimePeriod timePeriod, String entityID, Set<T> series, Object source,
+            @Nullable ChartDownsampler downsampler) {
 
         T item = timeSeriesContext.getSeriesEntity();
         ((HasTimeValueSeries) source).addUpdateValueListener(context, entityID + "_timeSeries",
                 item.getChartDynamicParameterFields(),
                 o -> {
-                    Set<TimeSeriesContext<T>> cts = buildTimeSeriesFromDataSource(timePeriod.snapshot(), item, timeSeriesContext.getSeries());
-                    TimeSeriesValues<T> values = timeSeriesContext.getOwner();
-
-                    // if context was updated - we need update rest of values also !!!
-                    if (!values.isEqualSeries(cts)) {
-                        WidgetChartsController.TimeSeriesChartData<ChartDataset> fullUpdatedData =
-                                this.buildTimeSeriesFullData(entityID, timePeriod, false, series);
-
-                        context.ui().sendDynamicUpdateImpl(item.getChartDataSource(), entityID, fullUpdatedData);
+                    if (!context.ui().isDynamicUpdateRegistered(item.getChartDataSource(), entityID)) {
+                        // nobody listens chart anymore. State rebuilt on next registered update
+                        chartStates.remove(entityID);
+                        return;
+                    }
+                    WidgetChartsController.TimeSeriesChartData<ChartDataset> data;
+                    ChartStateHolder holder = getOrCreateChartState(entityID);
+                    synchronized (holder) {
+                        data = holder.state == null || holder.fullUpdates ? null :
+                            buildDeltaData(holder.state, timePeriod.snapshot(), item, timeSeriesContext.getSeries());
+                        if (data == null) {
+                            // time window rolled to next bucket, series set changed or client not supports delta
+                            data = this.buildTimeSeriesFullData(entityID, timePeriod, false, series, downsampler, holder);
+                        } else if (data.getDatasets().isEmpty()) {
+                            return;
+                        }
                     }
+                    context.ui().sendDynamicUpdateImpl(item.getChartDataSource(), entityID, data);
                 });
     }
 
+    private ChartStateHolder getOrCreateChartState(String entityID) {
+        return chartStates.computeIfAbsent(entityID, id -> {
+            context.event().addEntityRemovedListener(entityID, "chart-state", removed -> releaseChart(entityID));
+            return new ChartStateHolder();
+        });
+    }
+
+    /**
+     * Drop chart state and source listeners of removed widget
+     */
+    private void releaseChart(String entityID) {
+        chartStates.remove(entityID);
+        context.event().removeEvents(entityID + "_timeSeries");
+    }
+
+    /**
+     * Re-evaluate only last (open) bucket of series.
+     *
+     * @return changed points or null if buckets are shifted and full rebuild required
+     */
+    private <T extends HasDynamicParameterFields & HasChartDataSource> WidgetChartsController.TimeSeriesChartData<ChartDataset>
+    buildDeltaData(ChartState state, TimeRange timeRange, T item, HasTimeValueSeries source) {
+        List<Date> range = timeRange.getRange();
+        if (!state.isSameBuckets(range)) {
+            return null;
+        }
+        Date lastBucket = range.get(range.size() - 1);
+        List<Date> lastBucketRange = Collections.singletonList(lastBucket);
+        String seriesEntityID = ((HasEntityIdentifier) item).getEntityID();
+
+        WidgetChartsController.TimeSeriesChartData<ChartDataset> delta = new WidgetChartsController.TimeSeriesChartData<>();
+        delta.setDelta(true);
+        delta.setTimestamp(Collections.singletonList(lastBucket.getTime()));
+        for (TimeSeriesContext<T> tail : buildTimeSeriesFromDataSource(new TimeRange(lastBucket, null, lastBucketRange), item, source, false)) {
+            String key = seriesEntityID + "_" + tail.getId();
+            if (!state.data.containsKey(key)) {
+                return null;
+            }
+            if (tail.getValue().isEmpty()) {
+                continue;
+            }
+            Float value = ChartBuckets.of(lastBucketRange, item.getChartAggregationType()).addAll(tail.getValue()).aggregate(0);
+            if (state.updateLast(key, value)) {
+                delta.getDatasets().add(new ChartDataset(tail.getId(), seriesEntityID).setData(Collections.singletonList(value)));
+            }
+        }
+        return delta;
+    }
+
     /**
      * Evaluate single value from specific data source and attach listener on it for dynamic updates
      */
@@ -161,6 +261,11 @@ public class TimeSeriesUtil {
 
     public <T extends HasDynamicParameterFields & HasChartDataSource> Set<TimeSeriesContext<T>>
     buildTimeSeriesFromDataSource(HasChartTimePeriod.TimeRange timeRange, T item, HasTimeValueSeries source) {
+        return buildTimeSeriesFromDataSource(timeRange, item, source, item.getFillEmptyValues());
+    }
+
+    private <T extends HasDynamicParameterFields & HasChartDataSource> Set<TimeSeriesContext<T>>
+    buildTimeSeriesFromDataSource(HasChartTimePeriod.TimeRange timeRange, T item, HasTimeValueSeries source, boolean fillEmptyValues) {
         Set<TimeSeriesContext<T>> result = new HashSet<>();
         PeriodRequest periodRequest = new PeriodRequest(context, timeRange.getFrom(), timeRange.getTo())
                 .setParameters(item.getChartDynamicParameterFields());
@@ -176,7 +281,7 @@ public class TimeSeriesUtil {
                         chartItem[0] = ((Date) chartItem[0]).getTime();
                     }
                 }
-            } else if (item.getFillEmptyValues()) { // we need find at least one value to fill chart if no data at all
+            } else if (fillEmptyValues) { // we need find at least one value to fill chart if no data at all
                 Object value = source.getStatusValue(new GetStatusValueRequest(context, item.getChartDynamicParameterFields()));
                 Long timestamp = periodRequest.getFromTime() == null ? periodRequest.getToTime() : periodRequest.getFromTime();
                 entry.setValue(Collections.singletonList(new Object[]{timestamp, InMemoryDB.toNumber(value)}));
@@ -206,4 +311,50 @@ public class TimeSeriesUtil {
         }
         return value;
     }
+
+    /**
+     * Last sent bucket boundaries and points per dataset
+     */
+    private static class ChartStateHolder {
+
+        // guarded by holder lock
+        private ChartState state;
+        // some listening client not supports delta updates. Reset when chart state dropped
+        private boolean fullUpdates;
+    }
+
+    private static class ChartState {
+
+        private final long[] boundaries;
+        // seriesEntityID_datasetID -> points
+        private final Map<String, List<Float>> data = new HashMap<>();
+
+        private ChartState(List<Date> dates, List<ChartDataset> datasets) {
+            boundaries = dates.stream().mapToLong(Date::getTime).toArray();
+            for (ChartDataset dataset : datasets) {
+                List<Float> points = new ArrayList<>(boundaries.length);
+                for (int i = 0; i < boundaries.length; i++) {
+                    points.add(dataset.getData() != null && i < dataset.getData().size() ? dataset.getData().get(i) : null);
+                }
+                data.put(dataset.getEntityID() + "_" + dataset.getId(), points);
+            }
+        }
+
+        private boolean isSameBuckets(List<Date> dates) {
+            return boundaries.length > 0
+                && boundaries.length == dates.size()
+                && boundaries[0] == dates.get(0).getTime()
+                && boundaries[boundaries.length - 1] == dates.get(dates.size() - 1).getTime();
+        }
+
+        private boolean updateLast(String key, Float value) {
+            List<Float> points = data.get(key);
+            int last = points.size() - 1;
+            if (Objects.equals(points.get(last), value)) {
+                return false;
+            }
+            points.set(last, value);
+            return true;
+        }
+    }
 }
@@ -58,7 +58,9 @@ public class WidgetChartsController {
                     entity.getEntityID(),
                     entity.buildTimePeriod(),
                     entity.getListenSourceUpdates(),
-                    Collections.singleton(entity));
+                    Collections.singleton(entity),
+                    null,
+                    request.isDeltaUpdates());
         }
 
         return new DisplayDataResponse(values, chartData);
@@ -72,7 +74,9 @@ public class WidgetChartsController {
                 entity.getEntityID(),
                 entity.buildTimePeriod(),
                 entity.getListenSourceUpdates(),
-                entity.getSeries());
+                entity.getSeries(),
+                ChartDownsampler.of(entity.getDownsampling(), request.getTargetPoints()),
+                request.isDeltaUpdates());
     }
 
     @PostMapping("/bartime/series")
@@ -84,7 +88,9 @@ public class WidgetChartsController {
                 entity.getEntityID(),
                 entity.buildTimePeriod(),
                 entity.getListenSourceUpdates(),
-                entity.getSeries());
+                entity.getSeries(),
+                null,
+                request.isDeltaUpdates());
     }
 
     @PostMapping("/bar/series")
@@ -137,6 +143,8 @@ public class WidgetChartsController {
         private final List<T> datasets = new ArrayList<>();
         private Object value; // for doughnut
         private List<Long> timestamp;
+        // true if contains only changed points which has to be merged into previous data by timestamp
+        private Boolean delta;
     }
 
     public record SingleValueData(Object value, String seriesEntityID) {
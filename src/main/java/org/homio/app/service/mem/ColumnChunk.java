@@ -0,0 +1,290 @@
+package org.homio.app.service.mem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Fixed size block of time-ordered samples stored in primitive columns. Values are kept as kind tag + raw 64 bits, strings are
+ * stored in chunk-local dictionary so they are released together with chunk.
+ */
+final class ColumnChunk {
+
+    static final int CAPACITY = 1024;
+
+    static final byte NULL = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte FLOAT = 3;
+    static final byte DOUBLE = 4;
+    static final byte BOOL = 5;
+    static final byte STRING = 6;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private final byte[] kinds = new byte[CAPACITY];
+    private final long[] bits = new long[CAPACITY];
+    // keeps original entity only for pojo with additional fields
+    private final @Nullable Object[] rows;
+
+    private List<String> dictionary;
+    private Map<String, Integer> dictionaryIndex;
+
+    // data lives in [start, end)
+    private int start;
+    private int end;
+
+    ColumnChunk(boolean keepRows) {
+        this.rows = keepRows ? new Object[CAPACITY] : null;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    int size() {
+        return end - start;
+    }
+
+    boolean isFull() {
+        return end == CAPACITY;
+    }
+
+    long firstTimestamp() {
+        return timestamps[start];
+    }
+
+    long lastTimestamp() {
+        return timestamps[end - 1];
+    }
+
+    long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    byte kind(int index) {
+        return kinds[index];
+    }
+
+    boolean isNumber(int index) {
+        byte kind = kinds[index];
+        return kind >= INT && kind <= DOUBLE;
+    }
+
+    @Nullable Object row(int index) {
+        return rows == null ? null : rows[index];
+    }
+
+    /**
+     * @return first index with timestamp >= ts
+     */
+    int lowerBound(long ts) {
+        int low = start, high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first index with timestamp > ts
+     */
+    int upperBound(long ts) {
+        int low = start, high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Insert sample keeping time order. Caller must check that chunk is not full
+     *
+     * @return index of inserted sample
+     */
+    int insert(long ts, @Nullable Object value, @Nullable Object row) {
+        int pos = end == start || ts >= timestamps[end - 1] ? end : upperBound(ts);
+        if (pos < end) {
+            System.arraycopy(timestamps, pos, timestamps, pos + 1, end - pos);
+            System.arraycopy(kinds, pos, kinds, pos + 1, end - pos);
+            System.arraycopy(bits, pos, bits, pos + 1, end - pos);
+            if (rows != null) {
+                System.arraycopy(rows, pos, rows, pos + 1, end - pos);
+            }
+        }
+        timestamps[pos] = ts;
+        encode(pos, value);
+        if (rows != null) {
+            rows[pos] = row;
+        }
+        end++;
+        return pos;
+    }
+
+    /**
+     * Move samples to the beginning of arrays to reuse space freed by trimHead()
+     */
+    void compact() {
+        if (start > 0) {
+            int size = size();
+            System.arraycopy(timestamps, start, timestamps, 0, size);
+            System.arraycopy(kinds, start, kinds, 0, size);
+            System.arraycopy(bits, start, bits, 0, size);
+            if (rows != null) {
+                System.arraycopy(rows, start, rows, 0, size);
+            }
+            clear(size, end);
+            start = 0;
+            end = size;
+        }
+    }
+
+    /**
+     * Move upper half of samples into new chunk. Used when inserting out of order sample into full chunk. Chunk must be
+     * compacted before, so both chunks are not empty
+     */
+    ColumnChunk split() {
+        ColumnChunk chunk = new ColumnChunk(rows != null);
+        int middle = start + size() / 2;
+        for (int i = middle; i < end; i++) {
+            chunk.insert(timestamps[i], value(i), row(i));
+        }
+        clear(middle, end);
+        end = middle;
+        return chunk;
+    }
+
+    /**
+     * Drop count oldest samples
+     */
+    void trimHead(int count) {
+        clear(start, start + count);
+        start += count;
+    }
+
+    /**
+     * Drop all samples so chunk may be reused
+     */
+    void reset() {
+        clear(start, end);
+        start = end = 0;
+        if (dictionary != null) {
+            dictionary.clear();
+            dictionaryIndex.clear();
+        }
+    }
+
+    /**
+     * Drop all samples not accepted by filter and compact arrays
+     */
+    int retain(IndexPredicate predicate) {
+        int target = start;
+        for (int i = start; i < end; i++) {
+            if (predicate.test(i)) {
+                if (target != i) {
+                    timestamps[target] = timestamps[i];
+                    kinds[target] = kinds[i];
+                    bits[target] = bits[i];
+                    if (rows != null) {
+                        rows[target] = rows[i];
+                    }
+                }
+                target++;
+            }
+        }
+        int removed = end - target;
+        clear(target, end);
+        end = target;
+        return removed;
+    }
+
+    @Nullable Object value(int index) {
+        long raw = bits[index];
+        return switch (kinds[index]) {
+            case INT -> (int) raw;
+            case LONG -> raw;
+            case FLOAT -> Float.intBitsToFloat((int) raw);
+            case DOUBLE -> Double.longBitsToDouble(raw);
+            case BOOL -> raw != 0;
+            case STRING -> dictionary.get((int) raw);
+            default -> null;
+        };
+    }
+
+    /**
+     * Numeric view of value. Same conversion rules as InMemoryDB.toNumber(...)
+     */
+    double doubleValue(int index) {
+        long raw = bits[index];
+        return switch (kinds[index]) {
+            case INT, LONG, BOOL -> raw;
+            case FLOAT -> Float.intBitsToFloat((int) raw);
+            case DOUBLE -> Double.longBitsToDouble(raw);
+            case STRING -> InMemoryDB.toNumber(dictionary.get((int) raw)).doubleValue();
+            default -> 0;
+        };
+    }
+
+    private void encode(int index, @Nullable Object value) {
+        if (value == null) {
+            kinds[index] = NULL;
+            bits[index] = 0;
+        } else if (value instanceof Integer intValue) {
+            kinds[index] = INT;
+            bits[index] = intValue;
+        } else if (value instanceof Long longValue) {
+            kinds[index] = LONG;
+            bits[index] = longValue;
+        } else if (value instanceof Float floatValue) {
+            kinds[index] = FLOAT;
+            bits[index] = Float.floatToRawIntBits(floatValue);
+        } else if (value instanceof Number number) {
+            kinds[index] = DOUBLE;
+            bits[index] = Double.doubleToRawLongBits(number.doubleValue());
+        } else if (value instanceof Boolean boolValue) {
+            kinds[index] = BOOL;
+            bits[index] = boolValue ? 1 : 0;
+        } else {
+            kinds[index] = STRING;
+            bits[index] = lookup(value.toString());
+        }
+    }
+
+    private int lookup(String value) {
+        if (dictionary == null) {
+            dictionary = new ArrayList<>();
+            dictionaryIndex = new HashMap<>();
+        }
+        return dictionaryIndex.computeIfAbsent(value, key -> {
+            dictionary.add(key);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private void clear(int from, int to) {
+        if (rows != null) {
+            Arrays.fill(rows, from, to, null);
+        }
+    }
+
+    interface IndexPredicate {
+
+        boolean test(int index);
+    }
+}
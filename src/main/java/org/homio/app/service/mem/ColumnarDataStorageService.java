@@ -0,0 +1,826 @@
+package org.homio.app.service.mem;
+
+import static org.homio.api.storage.DataStorageEntity.CREATED;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.bson.conversions.Bson;
+import org.homio.api.entity.widget.AggregationType;
+import org.homio.api.storage.DataStorageEntity;
+import org.homio.api.storage.DataStorageService;
+import org.homio.api.storage.SortBy;
+import org.homio.api.storage.SourceHistoryItem;
+import org.homio.app.service.mem.RollupTier.Stats;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * In-process DataStorageService. Every series is a list of time-ordered ColumnChunk's, so time range lookups are binary
+ * searches and values are stored as primitives instead of documents.
+ */
+public class ColumnarDataStorageService<T extends DataStorageEntity> implements DataStorageService<T> {
+
+    private static final String VALUE = "value";
+    private static final long[] ROLLUP_WIDTHS = {
+        Duration.ofMinutes(1).toMillis(), Duration.ofHours(1).toMillis(), Duration.ofDays(1).toMillis()};
+
+    private final Class<T> pojoClass;
+    private final Constructor<T> constructor;
+    private final @Nullable Field valueField;
+    // true if pojo has fields which not fit into columns and we need to keep original entity
+    private final boolean keepRows;
+    private final Map<String, Field> fields = new ConcurrentHashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ColumnChunk> chunks = new ArrayList<>();
+    // minute/hour/day pre-aggregated buckets, finest first
+    private final RollupTier[] tiers = new RollupTier[ROLLUP_WIDTHS.length];
+    // buckets which starts at or before this timestamp may include evicted samples
+    private long evictedUpTo = Long.MIN_VALUE;
+    private final Map<String, Consumer<T>> saveListeners = new HashMap<>();
+    private int size;
+
+    private @Nullable Long quota;
+    // max age of samples in ms, 0 - unlimited
+    private long retention;
+    // evicted head chunk reused for next tail chunk
+    private @Nullable ColumnChunk spareChunk;
+    private volatile T last;
+
+    @SneakyThrows
+    public ColumnarDataStorageService(@NotNull Class<T> pojoClass) {
+        this.pojoClass = pojoClass;
+        this.constructor = pojoClass.getDeclaredConstructor();
+        this.constructor.setAccessible(true);
+        this.valueField = FieldUtils.getField(pojoClass, VALUE, true);
+        this.keepRows = hasExtraFields(pojoClass);
+        for (int i = 0; i < ROLLUP_WIDTHS.length; i++) {
+            tiers[i] = new RollupTier(ROLLUP_WIDTHS[i]);
+        }
+    }
+
+    @Override
+    public List<SourceHistoryItem> getSourceHistoryItems(@Nullable String field, @Nullable String value, int from, int count) {
+        List<SourceHistoryItem> result = new ArrayList<>();
+        SeriesFilter filter = SeriesFilter.of(null, null, field, value);
+        int[] skip = {from};
+        read(() -> scan(filter, false, (chunk, index) -> {
+            if (skip[0]-- > 0) {
+                return true;
+            }
+            result.add(new SourceHistoryItem(chunk.timestamp(index), chunk.value(index)));
+            return result.size() < count;
+        }));
+        return result;
+    }
+
+    /**
+     * Save entities in single write. Save listeners are fired per entity, same as for save(entity)
+     */
+    @Override
+    public void save(@NotNull List<T> entities) {
+        write(() -> {
+            last = null;
+            for (T entity : entities) {
+                append(entity);
+            }
+            evict();
+        });
+        if (!saveListeners.isEmpty()) {
+            for (T entity : entities) {
+                for (Consumer<T> listener : saveListeners.values()) {
+                    listener.accept(entity);
+                }
+            }
+        }
+    }
+
+    @Override
+    public T save(@NotNull T entity) {
+        write(() -> {
+            append(entity);
+            evict();
+            last = entity;
+        });
+        for (Consumer<T> listener : saveListeners.values()) {
+            listener.accept(entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Store bare value without building entity instance. Falls back to regular save if pojo has additional fields or someone
+     * listens for saved entities
+     */
+    @SneakyThrows
+    public void saveValue(long created, @Nullable Object value) {
+        if (keepRows || !saveListeners.isEmpty() || valueField == null) {
+            T entity = constructor.newInstance();
+            entity.setCreated(created);
+            if (valueField != null) {
+                valueField.set(entity, value);
+            }
+            save(entity);
+            return;
+        }
+        write(() -> {
+            append(created, value, null);
+            evict();
+            last = null;
+        });
+    }
+
+    /**
+     * @return value of latest sample without materializing entity
+     */
+    public @Nullable Object getLatestValue() {
+        T latest = last;
+        if (latest != null) {
+            return latest.getValue();
+        }
+        return readResult(() -> {
+            if (chunks.isEmpty()) {
+                return null;
+            }
+            ColumnChunk chunk = chunks.get(chunks.size() - 1);
+            return chunk.value(chunk.end() - 1);
+        });
+    }
+
+    /**
+     * @return [timestamp, original value] samples within [from, to] sorted by timestamp. Values keep own type, so numeric and
+     * non-numeric samples may be told apart
+     */
+    public @NotNull List<Object[]> getValues(@Nullable Long from, @Nullable Long to) {
+        List<Object[]> result = new ArrayList<>();
+        read(() -> scan(SeriesFilter.of(from, to, null, null), true, (chunk, index) -> {
+            result.add(new Object[]{chunk.timestamp(index), chunk.value(index)});
+            return true;
+        }));
+        return result;
+    }
+
+    @Override
+    public long count(Long from, Long to) {
+        if (from == null && to == null) {
+            return readResult(() -> (long) size);
+        }
+        return readResult(() -> countRange(from == null ? Long.MIN_VALUE : from, to == null ? Long.MAX_VALUE : to));
+    }
+
+    @Override
+    public long deleteBy(@NotNull String field, @NotNull Object value) {
+        SeriesFilter filter = SeriesFilter.of(null, null, field, value);
+        return writeResult(() -> {
+            last = null;
+            long removed = 0;
+            for (ColumnChunk chunk : chunks) {
+                removed += chunk.retain(index -> !filter.test(chunk.timestamp(index), f -> readField(chunk, index, f)));
+            }
+            chunks.removeIf(chunk -> chunk.size() == 0);
+            size -= removed;
+            if (removed > 0) {
+                rebuildRollups();
+            }
+            return removed;
+        });
+    }
+
+    @Override
+    public long deleteAll() {
+        return writeResult(() -> {
+            last = null;
+            long removed = size;
+            chunks.clear();
+            size = 0;
+            for (RollupTier tier : tiers) {
+                tier.clear();
+            }
+            evictedUpTo = Long.MIN_VALUE;
+            return removed;
+        });
+    }
+
+    @Override
+    public T findLatestBy(@NotNull String field, @NotNull String value) {
+        List<T> result = queryList(SeriesFilter.of(null, null, field, value), false, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    @Override
+    public T getLatest() {
+        T latest = last;
+        if (latest == null) {
+            latest = readResult(() -> {
+                if (chunks.isEmpty()) {
+                    return null;
+                }
+                ColumnChunk chunk = chunks.get(chunks.size() - 1);
+                return toEntity(chunk, chunk.end() - 1);
+            });
+            last = latest;
+        }
+        return latest;
+    }
+
+    @Override
+    public @Nullable Long getQuota() {
+        return quota;
+    }
+
+    @Override
+    public void updateQuota(@Nullable Long quota) {
+        this.quota = quota == null || quota == 0 ? null : quota;
+        write(this::evict);
+    }
+
+    /**
+     * Set max age of stored samples in addition to count quota. Null or zero duration disables time retention
+     */
+    public void updateRetention(@Nullable Duration retention) {
+        this.retention = retention == null ? 0 : retention.toMillis();
+        write(this::evict);
+    }
+
+    /**
+     * Drop samples which became older than retention period. Inserts evicts expired samples by itself, this is only needed
+     * for series which are not updated for a long time
+     */
+    public void evictExpired() {
+        if (retention > 0) {
+            write(this::evict);
+        }
+    }
+
+    @Override
+    public long getUsed() {
+        return readResult(() -> (long) size);
+    }
+
+    @Override
+    public @NotNull List<Object[]> getTimeSeries(@Nullable Long from, @Nullable Long to, @Nullable String field,
+        @Nullable String value, @NotNull String aggregateField, @Nullable Integer limit, boolean sortAsc) {
+        SeriesFilter filter = SeriesFilter.of(from, to, field, value);
+        List<Object[]> result = new ArrayList<>();
+        boolean valueColumn = aggregateField.equals(VALUE);
+        read(() -> scan(filter, sortAsc, (chunk, index) -> {
+            float number = valueColumn ? (float) chunk.doubleValue(index)
+                : InMemoryDB.toNumber(readField(chunk, index, aggregateField)).floatValue();
+            result.add(new Object[]{chunk.timestamp(index), number});
+            return limit == null || result.size() < limit;
+        }));
+        return result;
+    }
+
+    @Override
+    public @NotNull List<T> queryListWithSort(Bson filter, SortBy sort, Integer limit) {
+        SeriesFilter seriesFilter = SeriesFilter.of(filter);
+        if (sort == null || sort.getOrderField().equals(CREATED)) {
+            return queryList(seriesFilter, sort == null || sort.isAsc(), limit);
+        }
+        List<T> result = queryList(seriesFilter, true, null);
+        Comparator<T> comparator = Comparator.comparing(entity -> readField(entity, sort.getOrderField()), InMemoryDB::compareValues);
+        result.sort(sort.isAsc() ? comparator : comparator.reversed());
+        return limit == null || result.size() <= limit ? result : new ArrayList<>(result.subList(0, limit));
+    }
+
+    @Override
+    public @NotNull Object aggregate(@Nullable Long from, @Nullable Long to, @Nullable String field, @Nullable String value,
+        @NotNull AggregationType aggregationType, boolean filterOnlyNumbers, @NotNull String aggregateField) {
+        SeriesFilter filter = SeriesFilter.of(from, to, field, value);
+        if (!filter.hasConditions() && aggregateField.equals(VALUE)) {
+            switch (aggregationType) {
+                case Count, Sum, Average, AverageNoZero, Min, Max -> {
+                    Object result = readResult(() -> aggregateFromRollups(filter, aggregationType));
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return readResult(() -> aggregate(filter, aggregationType, aggregateField));
+    }
+
+    /**
+     * Build chart series with at most maxPoints items. If range contains more raw samples than requested - answer with
+     * averages from finest rollup tier which fits into maxPoints buckets
+     */
+    public @NotNull List<Object[]> getTimeSeries(@Nullable Long from, @Nullable Long to, boolean sortAsc, int maxPoints) {
+        return readResult(() -> {
+            if (chunks.isEmpty()) {
+                return new ArrayList<>();
+            }
+            long rangeFrom = Math.max(from == null ? Long.MIN_VALUE : from, chunks.get(0).firstTimestamp());
+            long rangeTo = Math.min(to == null ? Long.MAX_VALUE : to, chunks.get(chunks.size() - 1).lastTimestamp());
+            if (rangeFrom <= rangeTo && countRange(rangeFrom, rangeTo) > maxPoints) {
+                for (RollupTier tier : tiers) {
+                    if (tier.countBuckets(rangeFrom, rangeTo) <= maxPoints) {
+                        return collectAverages(tier, rangeFrom, rangeTo, sortAsc);
+                    }
+                }
+            }
+            List<Object[]> result = new ArrayList<>();
+            scan(SeriesFilter.of(from, to, null, null), sortAsc, (chunk, index) -> {
+                result.add(new Object[]{chunk.timestamp(index), (float) chunk.doubleValue(index)});
+                return true;
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Averages of rollup buckets within [from, to]. First bucket may still contain partially evicted samples, so its average
+     * is computed from raw samples. Must be called under lock
+     */
+    private List<Object[]> collectAverages(RollupTier tier, long from, long to, boolean asc) {
+        List<Object[]> result = new ArrayList<>();
+        long headStart = tier.bucketStart(from);
+        if (evictedUpTo == Long.MIN_VALUE || headStart > evictedUpTo) {
+            tier.collectAverages(from, to, asc, result);
+            return result;
+        }
+        long headEnd = Math.min(to, headStart + tier.width - 1);
+        Stats stats = new Stats();
+        scan(SeriesFilter.of(from, headEnd, null, null), true, (chunk, index) -> {
+            stats.add(chunk.kind(index), chunk.isNumber(index) ? chunk.doubleValue(index) : 0);
+            return true;
+        });
+        Object[] head = stats.numericCount == 0 ? null : new Object[]{headStart, (float) (stats.sum / stats.numericCount)};
+        if (head != null && asc) {
+            result.add(head);
+        }
+        if (headEnd < to) {
+            tier.collectAverages(headEnd + 1, to, asc, result);
+        }
+        if (head != null && !asc) {
+            result.add(head);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull ColumnarDataStorageService<T> addSaveListener(@NotNull String discriminator, @NotNull Consumer<T> listener) {
+        this.saveListeners.put(discriminator, listener);
+        return this;
+    }
+
+    private Object aggregate(SeriesFilter filter, AggregationType aggregationType, String aggregateField) {
+        boolean valueColumn = aggregateField.equals(VALUE);
+        switch (aggregationType) {
+            case First, Last -> {
+                Object[] result = {0};
+                scan(filter, aggregationType == AggregationType.First, (chunk, index) -> {
+                    result[0] = readField(chunk, index, aggregateField);
+                    return false;
+                });
+                return result[0];
+            }
+            case Min, Max -> {
+                boolean max = aggregationType == AggregationType.Max;
+                Object[] result = {null};
+                scan(filter, true, (chunk, index) -> {
+                    Object item = readField(chunk, index, aggregateField);
+                    if (item != null) {
+                        if (result[0] == null) {
+                            result[0] = item;
+                        } else {
+                            int cmp = InMemoryDB.compareValues(item, result[0]);
+                            if (max ? cmp > 0 : cmp < 0) {
+                                result[0] = item;
+                            }
+                        }
+                    }
+                    return true;
+                });
+                return result[0] == null ? 0 : result[0];
+            }
+            case Count -> {
+                long[] count = {0};
+                scan(filter, true, (chunk, index) -> {
+                    count[0]++;
+                    return true;
+                });
+                return count[0];
+            }
+            case Average, AverageNoZero, Sum -> {
+                double[] sum = {0};
+                // numeric and non-zero numeric samples
+                long[] count = {0, 0};
+                boolean[] integral = {true};
+                scan(filter, true, (chunk, index) -> {
+                    double number;
+                    if (valueColumn) {
+                        if (!chunk.isNumber(index)) {
+                            return true;
+                        }
+                        number = chunk.doubleValue(index);
+                        integral[0] &= chunk.kind(index) == ColumnChunk.INT || chunk.kind(index) == ColumnChunk.LONG;
+                    } else if (readField(chunk, index, aggregateField) instanceof Number item) {
+                        number = item.doubleValue();
+                        integral[0] &= item instanceof Integer || item instanceof Long;
+                    } else {
+                        return true;
+                    }
+                    sum[0] += number;
+                    count[0]++;
+                    if (number != 0) {
+                        count[1]++;
+                    }
+                    return true;
+                });
+                if (count[0] == 0) {
+                    return 0;
+                }
+                return switch (aggregationType) {
+                    case Sum -> integral[0] ? (Object) (long) sum[0] : (Object) sum[0];
+                    case AverageNoZero -> count[1] == 0 ? 0 : sum[0] / count[1];
+                    default -> sum[0] / count[0];
+                };
+            }
+            case Median -> {
+                double[] values = collectNumbers(filter, aggregateField, valueColumn);
+                if (values.length == 0) {
+                    return 0;
+                }
+                Arrays.sort(values);
+                int middle = values.length / 2;
+                return values.length % 2 == 0 ? (values[middle - 1] + values[middle]) / 2 : values[middle];
+            }
+            default -> {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Answer aggregation from rollup buckets. Range is split into full day buckets in the middle, hour/minute buckets on
+     * edges and raw samples for the rest. Returns null if rollups can't give exact answer
+     */
+    private @Nullable Object aggregateFromRollups(SeriesFilter filter, AggregationType aggregationType) {
+        if (chunks.isEmpty() || filter.isEmptyRange()) {
+            return null;
+        }
+        long from = Math.max(filter.from, chunks.get(0).firstTimestamp());
+        long to = Math.min(filter.to, chunks.get(chunks.size() - 1).lastTimestamp());
+        Stats stats = new Stats();
+        accumulate(tiers.length - 1, from, to, stats);
+        switch (aggregationType) {
+            case Count:
+                return stats.count;
+            case Sum:
+                return stats.numericCount == 0 ? 0 : stats.sum();
+            case Average:
+                return stats.numericCount == 0 ? 0 : stats.sum / stats.numericCount;
+            case AverageNoZero:
+                return stats.nonZeroCount == 0 ? 0 : stats.sum / stats.nonZeroCount;
+            default:
+                if (stats.count == 0) {
+                    return 0;
+                }
+                // min/max over non-numeric values has to compare original values
+                if (stats.numericCount != stats.count) {
+                    return null;
+                }
+                return aggregationType == AggregationType.Min ? stats.min() : stats.max();
+        }
+    }
+
+    private void accumulate(int tierIndex, long from, long to, Stats stats) {
+        if (from > to) {
+            return;
+        }
+        if (tierIndex < 0) {
+            scan(SeriesFilter.of(from, to, null, null), true, (chunk, index) -> {
+                stats.add(chunk.kind(index), chunk.isNumber(index) ? chunk.doubleValue(index) : 0);
+                return true;
+            });
+            return;
+        }
+        RollupTier tier = tiers[tierIndex];
+        long lowest = evictedUpTo == Long.MIN_VALUE ? from : Math.max(from, evictedUpTo + 1);
+        long firstFull = -Math.floorDiv(-lowest, tier.width) * tier.width;
+        long fullEnd = tier.bucketStart(to + 1);
+        if (firstFull >= fullEnd) {
+            accumulate(tierIndex - 1, from, to, stats);
+            return;
+        }
+        accumulate(tierIndex - 1, from, firstFull - 1, stats);
+        tier.accumulate(firstFull, fullEnd - 1, stats);
+        accumulate(tierIndex - 1, fullEnd, to, stats);
+    }
+
+    private long countRange(long from, long to) {
+        if (chunks.isEmpty() || from > to) {
+            return 0;
+        }
+        long count = 0;
+        for (int c = findChunkWithLastAtLeast(from); c < chunks.size(); c++) {
+            ColumnChunk chunk = chunks.get(c);
+            if (chunk.firstTimestamp() > to) {
+                break;
+            }
+            count += chunk.upperBound(to) - chunk.lowerBound(from);
+        }
+        return count;
+    }
+
+    private void rebuildRollups() {
+        for (RollupTier tier : tiers) {
+            tier.clear();
+        }
+        evictedUpTo = Long.MIN_VALUE;
+        for (ColumnChunk chunk : chunks) {
+            for (int i = chunk.start(); i < chunk.end(); i++) {
+                addToRollups(chunk, i);
+            }
+        }
+    }
+
+    private void addToRollups(ColumnChunk chunk, int index) {
+        long ts = chunk.timestamp(index);
+        byte kind = chunk.kind(index);
+        double value = chunk.isNumber(index) ? chunk.doubleValue(index) : 0;
+        for (RollupTier tier : tiers) {
+            tier.add(ts, kind, value);
+        }
+    }
+
+    private double[] collectNumbers(SeriesFilter filter, String aggregateField, boolean valueColumn) {
+        double[][] values = {new double[64]};
+        int[] count = {0};
+        scan(filter, true, (chunk, index) -> {
+            double number;
+            if (valueColumn) {
+                if (!chunk.isNumber(index)) {
+                    return true;
+                }
+                number = chunk.doubleValue(index);
+            } else if (readField(chunk, index, aggregateField) instanceof Number item) {
+                number = item.doubleValue();
+            } else {
+                return true;
+            }
+            if (count[0] == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], count[0] * 2);
+            }
+            values[0][count[0]++] = number;
+            return true;
+        });
+        return Arrays.copyOf(values[0], count[0]);
+    }
+
+    private List<T> queryList(SeriesFilter filter, boolean asc, @Nullable Integer limit) {
+        List<T> result = new ArrayList<>();
+        read(() -> scan(filter, asc, (chunk, index) -> {
+            result.add(toEntity(chunk, index));
+            return limit == null || result.size() < limit;
+        }));
+        return result;
+    }
+
+    /**
+     * Walk over samples within filter time range in requested order. Time range resolved via binary search over chunks and
+     * inside chunk, rest of filter conditions are evaluated per sample. Must be called under lock
+     */
+    private void scan(SeriesFilter filter, boolean asc, SampleVisitor visitor) {
+        if (chunks.isEmpty() || filter.isEmptyRange()) {
+            return;
+        }
+        boolean hasConditions = filter.hasConditions();
+        int firstChunk = findChunkWithLastAtLeast(filter.from);
+        int lastChunk = findChunkWithFirstAtMost(filter.to);
+        if (firstChunk > lastChunk) {
+            return;
+        }
+        if (asc) {
+            for (int c = firstChunk; c <= lastChunk; c++) {
+                ColumnChunk chunk = chunks.get(c);
+                int from = chunk.lowerBound(filter.from), to = chunk.upperBound(filter.to);
+                for (int i = from; i < to; i++) {
+                    int index = i;
+                    if ((!hasConditions || filter.test(f -> readField(chunk, index, f))) && !visitor.visit(chunk, i)) {
+                        return;
+                    }
+                }
+            }
+        } else {
+            for (int c = lastChunk; c >= firstChunk; c--) {
+                ColumnChunk chunk = chunks.get(c);
+                int from = chunk.lowerBound(filter.from), to = chunk.upperBound(filter.to);
+                for (int i = to - 1; i >= from; i--) {
+                    int index = i;
+                    if ((!hasConditions || filter.test(f -> readField(chunk, index, f))) && !visitor.visit(chunk, i)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private int findChunkWithLastAtLeast(long ts) {
+        int low = 0, high = chunks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunks.get(mid).lastTimestamp() < ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int findChunkWithFirstAtMost(long ts) {
+        int low = 0, high = chunks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunks.get(mid).firstTimestamp() <= ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private void append(T entity) {
+        append(entity.getCreated(), entity.getValue(), keepRows ? entity : null);
+    }
+
+    private void append(long ts, @Nullable Object value, @Nullable Object row) {
+        ColumnChunk chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || ts >= chunk.lastTimestamp()) {
+            if (chunk == null || chunk.isFull()) {
+                chunk = spareChunk == null ? new ColumnChunk(keepRows) : spareChunk;
+                spareChunk = null;
+                chunks.add(chunk);
+            }
+        } else {
+            // out of order sample: put into last chunk which starts before ts
+            int index = Math.max(0, findChunkWithFirstAtMost(ts));
+            chunk = chunks.get(index);
+            if (chunk.isFull() && chunk.start() > 0) {
+                // head chunk trimmed by eviction has free space before start
+                chunk.compact();
+            } else if (chunk.isFull()) {
+                ColumnChunk upper = chunk.split();
+                chunks.add(index + 1, upper);
+                if (ts >= upper.firstTimestamp()) {
+                    chunk = upper;
+                }
+            }
+        }
+        addToRollups(chunk, chunk.insert(ts, value, row));
+        size++;
+    }
+
+    /**
+     * Series behaves like ring of chunks: once quota or retention is exceeded oldest samples are evicted from head chunk on
+     * every insert and emptied chunk is recycled as next tail chunk, so eviction is amortized O(1) with no batch trimming
+     */
+    private void evict() {
+        long limit = quota == null ? Long.MAX_VALUE : quota;
+        long expireBefore = retention == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - retention;
+        boolean evicted = false;
+        while (!chunks.isEmpty()) {
+            ColumnChunk head = chunks.get(0);
+            int count = size > limit ? (int) Math.min(head.size(), size - limit) : 0;
+            if (expireBefore != Long.MIN_VALUE) {
+                count = Math.max(count, head.lowerBound(expireBefore) - head.start());
+            }
+            if (count == 0) {
+                break;
+            }
+            evicted = true;
+            evictedUpTo = head.timestamp(head.start() + count - 1);
+            size -= count;
+            if (count == head.size()) {
+                chunks.remove(0);
+                head.reset();
+                spareChunk = head;
+            } else {
+                head.trimHead(count);
+            }
+        }
+        if (evicted) {
+            for (RollupTier tier : tiers) {
+                if (chunks.isEmpty()) {
+                    tier.clear();
+                } else {
+                    tier.dropBefore(chunks.get(0).firstTimestamp());
+                }
+            }
+            if (chunks.isEmpty()) {
+                last = null;
+            }
+        }
+    }
+
+    @SneakyThrows
+    private T toEntity(ColumnChunk chunk, int index) {
+        Object row = chunk.row(index);
+        if (row != null) {
+            return pojoClass.cast(row);
+        }
+        T entity = constructor.newInstance();
+        entity.setCreated(chunk.timestamp(index));
+        if (valueField != null) {
+            valueField.set(entity, chunk.value(index));
+        }
+        return entity;
+    }
+
+    private @Nullable Object readField(ColumnChunk chunk, int index, String field) {
+        if (field.equals(VALUE)) {
+            return chunk.value(index);
+        }
+        if (field.equals(CREATED)) {
+            return chunk.timestamp(index);
+        }
+        Object row = chunk.row(index);
+        return row == null ? null : readField(row, field);
+    }
+
+    @SneakyThrows
+    private @Nullable Object readField(Object entity, String field) {
+        if (field.equals(CREATED)) {
+            return ((DataStorageEntity) entity).getCreated();
+        }
+        if (field.equals(VALUE)) {
+            return ((DataStorageEntity) entity).getValue();
+        }
+        Field pojoField = fields.computeIfAbsent(field, name -> FieldUtils.getField(pojoClass, name, true));
+        return pojoField == null ? null : pojoField.get(entity);
+    }
+
+    private void read(Runnable action) {
+        lock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <R> R readResult(Supplier<R> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <R> R writeResult(Supplier<R> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean hasExtraFields(Class<?> pojoClass) {
+        for (Class<?> cursor = pojoClass; cursor != null && cursor != DataStorageEntity.class; cursor = cursor.getSuperclass()) {
+            for (Field field : cursor.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()
+                    && !field.getName().equals(VALUE)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private interface SampleVisitor {
+
+        /**
+         * @return false to stop iteration
+         */
+        boolean visit(ColumnChunk chunk, int index);
+    }
+}
@@ -0,0 +1,241 @@
+package org.homio.app.service.mem;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incrementally maintained fixed-width buckets (count/sum/non-zero count/min/max) over one series. Buckets are aligned to epoch and kept
+ * sorted by start time, so range aggregation only walks buckets instead of samples.
+ */
+final class RollupTier {
+
+    final long width;
+
+    private long[] starts = new long[16];
+    private long[] counts = new long[16];
+    private long[] numericCounts = new long[16];
+    private long[] nonZeroCounts = new long[16];
+    private double[] sums = new double[16];
+    private double[] mins = new double[16];
+    private double[] maxs = new double[16];
+    private byte[] minKinds = new byte[16];
+    private byte[] maxKinds = new byte[16];
+    private boolean[] fractional = new boolean[16];
+    // buckets lives in [head, tail)
+    private int head;
+    private int tail;
+
+    RollupTier(long width) {
+        this.width = width;
+    }
+
+    long bucketStart(long ts) {
+        return Math.floorDiv(ts, width) * width;
+    }
+
+    void add(long ts, byte kind, double value) {
+        long start = bucketStart(ts);
+        int index;
+        if (tail > head && starts[tail - 1] == start) {
+            index = tail - 1;
+        } else if (tail == head || starts[tail - 1] < start) {
+            index = insertBucket(tail, start);
+        } else {
+            index = Arrays.binarySearch(starts, head, tail, start);
+            if (index < 0) {
+                index = insertBucket(-index - 1, start);
+            }
+        }
+        counts[index]++;
+        if (kind >= ColumnChunk.INT && kind <= ColumnChunk.DOUBLE) {
+            if (numericCounts[index] == 0 || value < mins[index]) {
+                mins[index] = value;
+                minKinds[index] = kind;
+            }
+            if (numericCounts[index] == 0 || value > maxs[index]) {
+                maxs[index] = value;
+                maxKinds[index] = kind;
+            }
+            numericCounts[index]++;
+            if (value != 0) {
+                nonZeroCounts[index]++;
+            }
+            sums[index] += value;
+            fractional[index] |= kind == ColumnChunk.FLOAT || kind == ColumnChunk.DOUBLE;
+        }
+    }
+
+    /**
+     * Drop buckets which has no samples at or after ts
+     */
+    void dropBefore(long ts) {
+        while (head < tail && starts[head] + width <= ts) {
+            head++;
+        }
+        if (head == tail) {
+            head = tail = 0;
+        }
+    }
+
+    void clear() {
+        head = tail = 0;
+    }
+
+    /**
+     * Merge buckets with start within [from, to] into stats
+     */
+    void accumulate(long from, long to, Stats stats) {
+        int index = Arrays.binarySearch(starts, head, tail, from);
+        for (int i = index < 0 ? -index - 1 : index; i < tail && starts[i] <= to; i++) {
+            stats.merge(counts[i], numericCounts[i], nonZeroCounts[i], sums[i], mins[i], minKinds[i], maxs[i], maxKinds[i],
+                fractional[i]);
+        }
+    }
+
+    /**
+     * Emit [bucketStart, average] points for buckets within [from, to]
+     */
+    void collectAverages(long from, long to, boolean asc, List<Object[]> result) {
+        int index = Arrays.binarySearch(starts, head, tail, bucketStart(from));
+        int first = index < 0 ? -index - 1 : index;
+        int last = first;
+        while (last < tail && starts[last] <= to) {
+            last++;
+        }
+        for (int n = 0; n < last - first; n++) {
+            int i = asc ? first + n : last - 1 - n;
+            if (numericCounts[i] > 0) {
+                result.add(new Object[]{starts[i], (float) (sums[i] / numericCounts[i])});
+            }
+        }
+    }
+
+    int countBuckets(long from, long to) {
+        return (int) Math.min(Integer.MAX_VALUE, (bucketStart(to) - bucketStart(from)) / width + 1);
+    }
+
+    private int insertBucket(int position, long start) {
+        if (tail == starts.length) {
+            if (head > starts.length / 2) {
+                position -= head;
+                compact();
+            } else {
+                grow();
+            }
+        }
+        int shift = tail - position;
+        if (shift > 0) {
+            System.arraycopy(starts, position, starts, position + 1, shift);
+            System.arraycopy(counts, position, counts, position + 1, shift);
+            System.arraycopy(numericCounts, position, numericCounts, position + 1, shift);
+            System.arraycopy(nonZeroCounts, position, nonZeroCounts, position + 1, shift);
+            System.arraycopy(sums, position, sums, position + 1, shift);
+            System.arraycopy(mins, position, mins, position + 1, shift);
+            System.arraycopy(maxs, position, maxs, position + 1, shift);
+            System.arraycopy(minKinds, position, minKinds, position + 1, shift);
+            System.arraycopy(maxKinds, position, maxKinds, position + 1, shift);
+            System.arraycopy(fractional, position, fractional, position + 1, shift);
+        }
+        starts[position] = start;
+        counts[position] = 0;
+        numericCounts[position] = 0;
+        nonZeroCounts[position] = 0;
+        sums[position] = 0;
+        fractional[position] = false;
+        tail++;
+        return position;
+    }
+
+    private void compact() {
+        int size = tail - head;
+        System.arraycopy(starts, head, starts, 0, size);
+        System.arraycopy(counts, head, counts, 0, size);
+        System.arraycopy(numericCounts, head, numericCounts, 0, size);
+        System.arraycopy(nonZeroCounts, head, nonZeroCounts, 0, size);
+        System.arraycopy(sums, head, sums, 0, size);
+        System.arraycopy(mins, head, mins, 0, size);
+        System.arraycopy(maxs, head, maxs, 0, size);
+        System.arraycopy(minKinds, head, minKinds, 0, size);
+        System.arraycopy(maxKinds, head, maxKinds, 0, size);
+        System.arraycopy(fractional, head, fractional, 0, size);
+        head = 0;
+        tail = size;
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        numericCounts = Arrays.copyOf(numericCounts, capacity);
+        nonZeroCounts = Arrays.copyOf(nonZeroCounts, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxs = Arrays.copyOf(maxs, capacity);
+        minKinds = Arrays.copyOf(minKinds, capacity);
+        maxKinds = Arrays.copyOf(maxKinds, capacity);
+        fractional = Arrays.copyOf(fractional, capacity);
+    }
+
+    /**
+     * Mutable aggregation state shared between rollup buckets and raw samples
+     */
+    static final class Stats {
+
+        long count;
+        long numericCount;
+        // numeric non-zero samples, for AverageNoZero
+        long nonZeroCount;
+        double sum;
+        double min;
+        double max;
+        byte minKind;
+        byte maxKind;
+        boolean fractional;
+
+        void add(byte kind, double value) {
+            boolean numeric = kind >= ColumnChunk.INT && kind <= ColumnChunk.DOUBLE;
+            merge(1, numeric ? 1 : 0, numeric && value != 0 ? 1 : 0, value, value, kind, value, kind,
+                kind == ColumnChunk.FLOAT || kind == ColumnChunk.DOUBLE);
+        }
+
+        void merge(long count, long numericCount, long nonZeroCount, double sum, double min, byte minKind, double max, byte maxKind,
+            boolean fractional) {
+            this.count += count;
+            if (numericCount > 0) {
+                if (this.numericCount == 0 || min < this.min) {
+                    this.min = min;
+                    this.minKind = minKind;
+                }
+                if (this.numericCount == 0 || max > this.max) {
+                    this.max = max;
+                    this.maxKind = maxKind;
+                }
+                this.numericCount += numericCount;
+                this.nonZeroCount += nonZeroCount;
+                this.sum += sum;
+                this.fractional |= fractional;
+            }
+        }
+
+        Object sum() {
+            return fractional ? (Object) sum : (Object) (long) sum;
+        }
+
+        Object min() {
+            return decode(min, minKind);
+        }
+
+        Object max() {
+            return decode(max, maxKind);
+        }
+
+        private static Object decode(double value, byte kind) {
+            return switch (kind) {
+                case ColumnChunk.INT -> (int) value;
+                case ColumnChunk.LONG -> (long) value;
+                case ColumnChunk.FLOAT -> (float) value;
+                default -> value;
+            };
+        }
+    }
+}
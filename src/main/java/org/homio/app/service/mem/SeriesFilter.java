@@ -0,0 +1,177 @@
+package org.homio.app.service.mem;
+
+import static org.homio.api.storage.DataStorageEntity.CREATED;
+
+import com.mongodb.MongoClientSettings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Translate mongo-like filters into time range + list of field predicates, so time range may be resolved with binary search
+ * and only rest of conditions evaluated per sample.
+ * <p>
+ * Supported: implicit/explicit $and, $eq, $ne, $gt, $gte, $lt, $lte, $in
+ */
+final class SeriesFilter {
+
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    private final List<Condition> conditions = new ArrayList<>();
+
+    static @NotNull SeriesFilter of(@Nullable Long from, @Nullable Long to, @Nullable String field, @Nullable Object value) {
+        SeriesFilter filter = new SeriesFilter();
+        if (from != null) {
+            filter.from = from;
+        }
+        if (to != null) {
+            filter.to = to;
+        }
+        if (field != null && value != null) {
+            filter.addCondition(field, "$eq", value);
+        }
+        return filter;
+    }
+
+    static @NotNull SeriesFilter of(@Nullable Bson bson) {
+        SeriesFilter filter = new SeriesFilter();
+        if (bson != null) {
+            filter.parse(bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()));
+        }
+        return filter;
+    }
+
+    boolean hasConditions() {
+        return !conditions.isEmpty();
+    }
+
+    boolean isEmptyRange() {
+        return from > to;
+    }
+
+    boolean test(long timestamp, @NotNull FieldReader reader) {
+        return timestamp >= from && timestamp <= to && test(reader);
+    }
+
+    boolean test(@NotNull FieldReader reader) {
+        for (Condition condition : conditions) {
+            if (!condition.test(reader.read(condition.field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parse(BsonDocument document) {
+        for (Entry<String, BsonValue> entry : document.entrySet()) {
+            if (entry.getKey().equals("$and")) {
+                for (BsonValue item : entry.getValue().asArray()) {
+                    parse(item.asDocument());
+                }
+            } else if (entry.getKey().startsWith("$")) {
+                throw new IllegalArgumentException("Unsupported in-memory filter operator: " + entry.getKey());
+            } else if (entry.getValue().isDocument()) {
+                for (Entry<String, BsonValue> op : entry.getValue().asDocument().entrySet()) {
+                    addCondition(entry.getKey(), op.getKey(), toJava(op.getValue()));
+                }
+            } else {
+                addCondition(entry.getKey(), "$eq", toJava(entry.getValue()));
+            }
+        }
+    }
+
+    private void addCondition(String field, String op, Object value) {
+        if (field.equals(CREATED) && value instanceof Number number) {
+            long ts = number.longValue();
+            switch (op) {
+                case "$gte" -> from = Math.max(from, ts);
+                case "$gt" -> from = Math.max(from, ts + 1);
+                case "$lte" -> to = Math.min(to, ts);
+                case "$lt" -> to = Math.min(to, ts - 1);
+                case "$eq" -> {
+                    from = Math.max(from, ts);
+                    to = Math.min(to, ts);
+                }
+                default -> conditions.add(new Condition(field, op, value));
+            }
+            return;
+        }
+        if (!op.equals("$eq") && !op.equals("$ne") && !op.equals("$in")
+            && !op.equals("$gt") && !op.equals("$gte") && !op.equals("$lt") && !op.equals("$lte")) {
+            throw new IllegalArgumentException("Unsupported in-memory filter operator: " + op);
+        }
+        conditions.add(new Condition(field, op, value));
+    }
+
+    private static @Nullable Object toJava(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case INT32 -> value.asInt32().getValue();
+            case INT64 -> value.asInt64().getValue();
+            case DOUBLE -> value.asDouble().getValue();
+            case BOOLEAN -> value.asBoolean().getValue();
+            case STRING -> value.asString().getValue();
+            case NULL -> null;
+            case ARRAY -> {
+                BsonArray array = value.asArray();
+                List<Object> list = new ArrayList<>(array.size());
+                for (BsonValue item : array) {
+                    list.add(toJava(item));
+                }
+                yield list;
+            }
+            default -> throw new IllegalArgumentException("Unsupported in-memory filter value: " + value.getBsonType());
+        };
+    }
+
+    static boolean valueEquals(@Nullable Object value, @Nullable Object expected) {
+        if (value instanceof Number n1 && expected instanceof Number n2) {
+            return n1.doubleValue() == n2.doubleValue();
+        }
+        if (value != null && expected instanceof String && !(value instanceof String)) {
+            return value.toString().equals(expected);
+        }
+        return Objects.equals(value, expected);
+    }
+
+    interface FieldReader {
+
+        @Nullable Object read(@NotNull String field);
+    }
+
+    private record Condition(String field, String op, Object expected) {
+
+        boolean test(@Nullable Object value) {
+            return switch (op) {
+                case "$eq" -> valueEquals(value, expected);
+                case "$ne" -> !valueEquals(value, expected);
+                case "$in" -> {
+                    for (Object item : (List<?>) expected) {
+                        if (valueEquals(value, item)) {
+                            yield true;
+                        }
+                    }
+                    yield false;
+                }
+                default -> {
+                    if (!(value instanceof Number number) || !(expected instanceof Number limit)) {
+                        yield false;
+                    }
+                    int cmp = Double.compare(number.doubleValue(), limit.doubleValue());
+                    yield switch (op) {
+                        case "$gt" -> cmp > 0;
+                        case "$gte" -> cmp >= 0;
+                        case "$lt" -> cmp < 0;
+                        default -> cmp <= 0;
+                    };
+                }
+            };
+        }
+    }
+}
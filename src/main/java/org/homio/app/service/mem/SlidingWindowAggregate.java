@@ -0,0 +1,260 @@
+package org.homio.app.service.mem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.homio.api.entity.widget.AggregationType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Incremental aggregation of last 'window' ms of variable values. Keeps samples of window with running sum/count, monotonic
+ * deques for min/max and two balanced multisets for median, so every new sample updates state in O(1) amortized
+ * (O(log n) for median) and answer not touch storage. State is loaded from storage once after creation (cold start). Samples
+ * which come while loading are buffered and applied after history if they are newer than load cutoff. Aggregation rules are
+ * same as ColumnarDataStorageService has: Count counts all samples, other aggregations use only numeric samples and
+ * AverageNoZero skips zeros. Min/Max/First/Last which storage evaluates over original non-numeric values answered from storage
+ */
+public class SlidingWindowAggregate {
+
+    private final long windowMillis;
+    private final int maxSamples;
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    // values in non-increasing/non-decreasing order from head. Head is window max/min
+    private final ArrayDeque<Sample> maxDeque = new ArrayDeque<>();
+    private final ArrayDeque<Sample> minDeque = new ArrayDeque<>();
+    // lower half and upper half of window values, lower size == upper size or upper size + 1
+    private final TreeMap<Double, Integer> lower = new TreeMap<>();
+    private final TreeMap<Double, Integer> upper = new TreeMap<>();
+    private int lowerSize;
+    private int upperSize;
+
+    private double sum;
+    private long numericCount;
+    private long nonZeroCount;
+    private long lastTimestamp = Long.MIN_VALUE;
+    // samples received before history loaded
+    private @Nullable List<Sample> pending = new ArrayList<>();
+    private volatile long lastAccess = System.currentTimeMillis();
+    // window had more samples than maxSamples. Such window not usable anymore and answered from storage
+    private volatile boolean overflow;
+
+    public SlidingWindowAggregate(long windowMillis, int maxSamples) {
+        this.windowMillis = windowMillis;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * @param history - [timestamp, original value] samples of window from storage sorted by timestamp, read up to 'cutoff'
+     *                inclusive
+     * @param cutoff  - max timestamp of history. Buffered samples at or before cutoff are already in history
+     */
+    public synchronized void load(@NotNull List<Object[]> history, long cutoff) {
+        List<Sample> received = pending;
+        pending = null;
+        for (Object[] item : history) {
+            append(toSample((Long) item[0], item[1]));
+        }
+        long loadedUpTo = Math.max(cutoff, lastTimestamp);
+        if (received != null) {
+            for (Sample sample : received) {
+                if (sample.timestamp > loadedUpTo) {
+                    append(sample);
+                }
+            }
+        }
+    }
+
+    public static boolean isSupported(@NotNull AggregationType aggregationType) {
+        return switch (aggregationType) {
+            case Sum, Average, AverageNoZero, Min, Max, Count, Median, First, Last -> true;
+            default -> false;
+        };
+    }
+
+    public boolean isIdle(long idleMillis) {
+        return System.currentTimeMillis() - lastAccess > idleMillis;
+    }
+
+    public synchronized void add(long timestamp, @Nullable Object value) {
+        Sample sample = toSample(timestamp, value);
+        if (pending != null) {
+            pending.add(sample);
+        } else {
+            append(sample);
+        }
+    }
+
+    // numeric same as storage column kinds int/long/float/double
+    private static Sample toSample(long timestamp, @Nullable Object value) {
+        return value instanceof Number number ? new Sample(timestamp, number.doubleValue(), true) : new Sample(timestamp, 0, false);
+    }
+
+    private void append(Sample sample) {
+        if (overflow || sample.timestamp < lastTimestamp) {
+            return;
+        }
+        lastTimestamp = sample.timestamp;
+        samples.addLast(sample);
+        if (sample.numeric) {
+            double value = sample.value;
+            numericCount++;
+            sum += value;
+            if (value != 0) {
+                nonZeroCount++;
+            }
+            while (!maxDeque.isEmpty() && maxDeque.peekLast().value < value) {
+                maxDeque.pollLast();
+            }
+            maxDeque.addLast(sample);
+            while (!minDeque.isEmpty() && minDeque.peekLast().value > value) {
+                minDeque.pollLast();
+            }
+            minDeque.addLast(sample);
+            addMedian(value);
+        }
+        evict(sample.timestamp);
+        if (samples.size() > maxSamples) {
+            overflow = true;
+            clear();
+        }
+    }
+
+    /**
+     * @return aggregated value or null if window not loaded yet, overflowed or has non-numeric samples which storage compares
+     * by original value, so has to be answered from storage
+     */
+    public synchronized @Nullable Object get(@NotNull AggregationType aggregationType) {
+        lastAccess = System.currentTimeMillis();
+        if (overflow || pending != null) {
+            return null;
+        }
+        evict(lastAccess);
+        int count = samples.size();
+        if (aggregationType == AggregationType.Count) {
+            return (long) count;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        boolean allNumeric = numericCount == count;
+        return switch (aggregationType) {
+            case Sum -> numericCount == 0 ? 0 : sum;
+            case Average -> numericCount == 0 ? 0 : sum / numericCount;
+            case AverageNoZero -> nonZeroCount == 0 ? 0 : sum / nonZeroCount;
+            case Min -> allNumeric ? minDeque.peekFirst().value : null;
+            case Max -> allNumeric ? maxDeque.peekFirst().value : null;
+            case First -> numericValue(samples.peekFirst());
+            case Last -> numericValue(samples.peekLast());
+            case Median -> numericCount == 0 ? 0 : lowerSize == upperSize ? (lower.lastKey() + upper.firstKey()) / 2 : lower.lastKey();
+            default -> throw new IllegalArgumentException("Unsupported window aggregation: " + aggregationType);
+        };
+    }
+
+    private static @Nullable Object numericValue(Sample sample) {
+        return sample.numeric ? sample.value : null;
+    }
+
+    private void evict(long now) {
+        long from = now - windowMillis;
+        while (!samples.isEmpty() && samples.peekFirst().timestamp < from) {
+            Sample sample = samples.pollFirst();
+            if (!sample.numeric) {
+                continue;
+            }
+            numericCount--;
+            sum -= sample.value;
+            if (sample.value != 0) {
+                nonZeroCount--;
+            }
+            if (maxDeque.peekFirst() == sample) {
+                maxDeque.pollFirst();
+            }
+            if (minDeque.peekFirst() == sample) {
+                minDeque.pollFirst();
+            }
+            removeMedian(sample.value);
+        }
+        if (samples.isEmpty()) {
+            // drop accumulated floating point error
+            sum = 0;
+        }
+    }
+
+    private void addMedian(double value) {
+        if (lowerSize == 0 || value <= lower.lastKey()) {
+            increment(lower, value);
+            lowerSize++;
+        } else {
+            increment(upper, value);
+            upperSize++;
+        }
+        rebalance();
+    }
+
+    private void removeMedian(double value) {
+        if (lowerSize > 0 && value <= lower.lastKey()) {
+            decrement(lower, value);
+            lowerSize--;
+        } else {
+            decrement(upper, value);
+            upperSize--;
+        }
+        rebalance();
+    }
+
+    private void rebalance() {
+        if (lowerSize > upperSize + 1) {
+            double value = lower.lastKey();
+            decrement(lower, value);
+            increment(upper, value);
+            lowerSize--;
+            upperSize++;
+        } else if (upperSize > lowerSize) {
+            double value = upper.firstKey();
+            decrement(upper, value);
+            increment(lower, value);
+            upperSize--;
+            lowerSize++;
+        }
+    }
+
+    private void clear() {
+        samples.clear();
+        maxDeque.clear();
+        minDeque.clear();
+        lower.clear();
+        upper.clear();
+        lowerSize = 0;
+        upperSize = 0;
+        sum = 0;
+        numericCount = 0;
+        nonZeroCount = 0;
+    }
+
+    private static void increment(TreeMap<Double, Integer> set, double value) {
+        set.merge(value, 1, Integer::sum);
+    }
+
+    private static void decrement(TreeMap<Double, Integer> set, double value) {
+        set.computeIfPresent(value, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Remove idle windows
+     */
+    public static void evictIdle(@NotNull Map<Long, SlidingWindowAggregate> windows, long idleMillis) {
+        for (Iterator<SlidingWindowAggregate> iterator = windows.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isIdle(idleMillis)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private record Sample(long timestamp, double value, boolean numeric) {
+
+    }
+}
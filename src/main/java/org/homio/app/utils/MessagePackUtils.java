@@ -0,0 +1,75 @@
+package org.homio.app.utils;
+
+import static org.homio.api.util.JsonUtils.OBJECT_MAPPER;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import lombok.SneakyThrows;
+import org.jetbrains.annotations.NotNull;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+
+public final class MessagePackUtils {
+
+    private MessagePackUtils() {
+    }
+
+    /**
+     * Encode json tree as MessagePack. Tree is walked directly, only POJO nodes are converted into json tree on the way
+     */
+    @SneakyThrows
+    public static byte @NotNull [] pack(@NotNull JsonNode node) {
+        try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
+            pack(packer, node);
+            return packer.toByteArray();
+        }
+    }
+
+    private static void pack(MessagePacker packer, JsonNode node) throws IOException {
+        switch (node.getNodeType()) {
+            case OBJECT -> {
+                packer.packMapHeader(node.size());
+                for (Iterator<Map.Entry<String, JsonNode>> iterator = node.fields(); iterator.hasNext(); ) {
+                    Map.Entry<String, JsonNode> entry = iterator.next();
+                    packer.packString(entry.getKey());
+                    pack(packer, entry.getValue());
+                }
+            }
+            case ARRAY -> {
+                packer.packArrayHeader(node.size());
+                for (JsonNode item : node) {
+                    pack(packer, item);
+                }
+            }
+            case STRING -> packer.packString(node.textValue());
+            case BOOLEAN -> packer.packBoolean(node.booleanValue());
+            case NUMBER -> {
+                if (node.isIntegralNumber() && node.canConvertToLong()) {
+                    packer.packLong(node.longValue());
+                } else if (node.isFloat()) {
+                    packer.packFloat(node.floatValue());
+                } else {
+                    packer.packDouble(node.doubleValue());
+                }
+            }
+            case BINARY -> {
+                byte[] data = node.binaryValue();
+                packer.packBinaryHeader(data.length);
+                packer.writePayload(data);
+            }
+            case POJO -> {
+                Object pojo = ((POJONode) node).getPojo();
+                if (pojo == null) {
+                    packer.packNil();
+                } else {
+                    pack(packer, pojo instanceof JsonNode jsonNode ? jsonNode : OBJECT_MAPPER.valueToTree(pojo));
+                }
+            }
+            default -> packer.packNil();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.homio.app.workspace;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects event keys which workspace condition reads while evaluating. Value providers call record() with key of event which
+ * fires when value changes, so LockManagerImpl re-evaluates condition only when one of such events fired. Any read which not
+ * reported by event key (device state, time, entity, etc...) must mark evaluation as untracked, then condition stays polled
+ */
+public final class ConditionDependencies {
+
+    private static final ThreadLocal<Tracking> RECORDER = new ThreadLocal<>();
+
+    // blocks which read nothing but own inputs and tracked variables
+    private static final Set<String> TRACKED_BLOCKS = Set.of(
+        "operator_add", "operator_subtract", "operator_multiply", "operator_divide", "operator_lt", "operator_equals",
+        "operator_gt", "operator_and", "operator_or", "operator_not", "operator_mathop", "operator_bool_to_num",
+        "data_variable");
+
+    private ConditionDependencies() {
+    }
+
+    /**
+     * Register dependency of condition which is evaluated in current thread. Does nothing outside of condition evaluation
+     */
+    public static void record(@NotNull String eventKey) {
+        Tracking tracking = RECORDER.get();
+        if (tracking != null) {
+            tracking.keys.add(eventKey);
+        }
+    }
+
+    /**
+     * Register read of value without change event. Condition which evaluated in current thread has to be polled
+     */
+    public static void recordUntracked() {
+        Tracking tracking = RECORDER.get();
+        if (tracking != null) {
+            tracking.untracked = true;
+        }
+    }
+
+    /**
+     * Mark evaluation as untracked if evaluated block may read values without change event
+     */
+    public static void recordBlock(@NotNull String extensionId, @NotNull String opcode) {
+        Tracking tracking = RECORDER.get();
+        if (tracking != null && !TRACKED_BLOCKS.contains(extensionId + "_" + opcode)) {
+            tracking.untracked = true;
+        }
+    }
+
+    static <T> T track(@NotNull Tracking tracking, @NotNull Supplier<T> supplier) {
+        Tracking parent = RECORDER.get();
+        RECORDER.set(tracking);
+        try {
+            return supplier.get();
+        } finally {
+            if (parent == null) {
+                RECORDER.remove();
+            } else {
+                parent.keys.addAll(tracking.keys);
+                parent.untracked |= tracking.untracked;
+                RECORDER.set(parent);
+            }
+        }
+    }
+
+    /**
+     * Result of single condition evaluation
+     */
+    @Getter
+    static class Tracking {
+
+        private final Set<String> keys = new HashSet<>();
+        private boolean untracked;
+
+        /**
+         * @return true if condition may be re-evaluated only on dependency events
+         */
+        boolean isFullyTracked() {
+            return !untracked && !keys.isEmpty();
+        }
+
+        void markUntracked() {
+            untracked = true;
+        }
+    }
+}
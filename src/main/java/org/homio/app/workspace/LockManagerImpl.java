@@ -4,13 +4,15 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.tuple.Pair;
+import org.homio.api.Context;
 import org.homio.api.ContextBGP.ThreadContext;
+import org.homio.api.util.CommonUtils;
 import org.homio.api.workspace.Lock;
 import org.homio.api.workspace.LockManager;
 import org.homio.api.workspace.WorkspaceBlock;
@@ -19,17 +21,26 @@ import org.homio.api.workspace.WorkspaceBlock;
 @RequiredArgsConstructor
 public class LockManagerImpl implements LockManager {
 
+    private static final Duration INITIAL_EVALUATION_DELAY = Duration.ofMillis(200);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(1000);
+
     private final String workspaceTabId;
     private final WorkspaceWarehouseContext workspaceWarehouse = new WorkspaceWarehouseContext();
 
     /**
-     * Signal all lock with specified name and value
+     * Signal all lock with specified name and value and re-evaluate conditions which depend on event
      */
     @Override
     public void signalAll(String key, Object value) {
         if (workspaceWarehouse.broadcastListeners.containsKey(key)) {
             workspaceWarehouse.broadcastListeners.get(key).forEach(a -> a.signalAll(value));
         }
+        Set<ListenCondition> conditions = workspaceWarehouse.dependents.get(key);
+        if (conditions != null) {
+            for (ListenCondition condition : conditions) {
+                scheduleEvaluation(condition);
+            }
+        }
     }
 
     /**
@@ -54,52 +65,160 @@ public class LockManagerImpl implements LockManager {
         return getLock(workspaceBlock, key, null);
     }
 
+    /**
+     * Listen condition. Condition evaluated once after registration and then only when one of events it depends on fired.
+     * Dependencies recorded while evaluating condition, see ConditionDependencies. Condition which read any value without
+     * change event or has no dependencies is polled every second as well
+     */
     @Override
     public Lock listenEvent(WorkspaceBlock workspaceBlock, Supplier<Boolean> supplier) {
         LockImpl lock = getLock(workspaceBlock);
-        workspaceWarehouse.broadcastListenersMap.put(workspaceBlock.getId(), Pair.of(lock, supplier));
-
-        if (workspaceWarehouse.threadContext == null) {
-            workspaceBlock
-                .context()
-                    .bgp()
-                    .builder("BroadcastListenEvent-" + workspaceTabId)
-                    .interval(Duration.ofMillis(1000))
-                    .tap(context -> workspaceWarehouse.threadContext = context)
-                    .execute(() -> {
-                        for (Entry<String, Pair<LockImpl, Supplier<Boolean>>> item : workspaceWarehouse.broadcastListenersMap.entrySet()) {
-                            if (item.getValue().getValue().get()) {
-                                item.getValue().getKey().signalAll();
-                            }
-                        }
-                    });
+        ListenCondition condition = new ListenCondition(workspaceBlock.getId(), lock, supplier, workspaceBlock.context());
+        ListenCondition oldCondition = workspaceWarehouse.broadcastListenersMap.put(workspaceBlock.getId(), condition);
+        if (oldCondition != null) {
+            oldCondition.released = true;
+            updateDependencies(oldCondition, new ConditionDependencies.Tracking());
         }
-
+        // first evaluation after caller subscribed to lock
+        workspaceBlock.context().bgp().execute(INITIAL_EVALUATION_DELAY, () -> evaluate(condition));
         return lock;
     }
 
     public void release() {
-        for (Pair<LockImpl, Supplier<Boolean>> pair :
-                workspaceWarehouse.broadcastListenersMap.values()) {
-            pair.getKey().release();
+        for (ListenCondition condition : workspaceWarehouse.broadcastListenersMap.values()) {
+            condition.released = true;
+            condition.lock.release();
         }
         workspaceWarehouse.broadcastListenersMap.clear();
+        workspaceWarehouse.dependents.clear();
+        workspaceWarehouse.polledConditions.clear();
 
         for (List<LockImpl> locks : workspaceWarehouse.broadcastListeners.values()) {
             locks.forEach(LockImpl::release);
         }
         workspaceWarehouse.broadcastListeners.clear();
 
-        if (workspaceWarehouse.threadContext != null) {
-            workspaceWarehouse.threadContext.cancel();
-            workspaceWarehouse.threadContext = null;
+        stopPollingIfEmpty();
+    }
+
+    // evaluate out of event handler thread. Events fired while evaluation pending are merged into single evaluation
+    private void scheduleEvaluation(ListenCondition condition) {
+        if (condition.pending.compareAndSet(false, true)) {
+            condition.context.bgp().execute(null, () -> {
+                condition.pending.set(false);
+                evaluate(condition);
+            });
         }
     }
 
+    private void evaluate(ListenCondition condition) {
+        synchronized (condition) {
+            if (condition.released) {
+                return;
+            }
+            ConditionDependencies.Tracking tracking = new ConditionDependencies.Tracking();
+            boolean matched = false;
+            try {
+                matched = Boolean.TRUE.equals(ConditionDependencies.track(tracking, condition.supplier));
+            } catch (Exception ex) {
+                log.warn("[{}]: Error while evaluate condition of block <{}>: {}", workspaceTabId, condition.blockId,
+                    CommonUtils.getErrorMessage(ex));
+                // condition which fails in the middle may have read not all dependencies
+                tracking.markUntracked();
+            }
+            boolean newDependencies = false;
+            if (!condition.released) {
+                newDependencies = updateDependencies(condition, tracking);
+            }
+            if (matched) {
+                condition.lock.signalAll();
+            }
+            // dependency event may fire after value was read but before key registered, re-check once to not lose it
+            if (newDependencies) {
+                scheduleEvaluation(condition);
+            }
+        }
+    }
+
+    /**
+     * @return true if condition started listening new event keys
+     */
+    private boolean updateDependencies(ListenCondition condition, ConditionDependencies.Tracking tracking) {
+        Set<String> dependencies = tracking.getKeys();
+        boolean polled = !tracking.isFullyTracked() && !condition.released;
+        boolean newDependencies = false;
+        if (!dependencies.equals(condition.dependencies)) {
+            for (String key : condition.dependencies) {
+                if (!dependencies.contains(key)) {
+                    workspaceWarehouse.dependents.computeIfPresent(key, (k, conditions) -> {
+                        conditions.remove(condition);
+                        return conditions.isEmpty() ? null : conditions;
+                    });
+                }
+            }
+            for (String key : dependencies) {
+                if (!condition.dependencies.contains(key)) {
+                    workspaceWarehouse.dependents.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(condition);
+                    newDependencies = true;
+                }
+            }
+            condition.dependencies = dependencies;
+        }
+        if (polled) {
+            workspaceWarehouse.polledConditions.add(condition);
+            startPolling(condition.context);
+        } else if (workspaceWarehouse.polledConditions.remove(condition)) {
+            stopPollingIfEmpty();
+        }
+        // polled condition re-checked by poll anyway
+        return newDependencies && !polled;
+    }
+
+    // fallback for conditions which read values not reported to ConditionDependencies
+    private void startPolling(Context context) {
+        synchronized (workspaceWarehouse) {
+            if (workspaceWarehouse.threadContext == null) {
+                workspaceWarehouse.threadContext = context
+                    .bgp()
+                    .builder("BroadcastListenEvent-" + workspaceTabId)
+                    .interval(POLL_INTERVAL)
+                    .execute(() -> {
+                        for (ListenCondition condition : workspaceWarehouse.polledConditions) {
+                            evaluate(condition);
+                        }
+                    });
+            }
+        }
+    }
+
+    private void stopPollingIfEmpty() {
+        synchronized (workspaceWarehouse) {
+            if (workspaceWarehouse.threadContext != null && workspaceWarehouse.polledConditions.isEmpty()) {
+                workspaceWarehouse.threadContext.cancel();
+                workspaceWarehouse.threadContext = null;
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class ListenCondition {
+
+        private final String blockId;
+        private final LockImpl lock;
+        private final Supplier<Boolean> supplier;
+        private final Context context;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile Set<String> dependencies = Set.of();
+        private volatile boolean released;
+    }
+
     private static class WorkspaceWarehouseContext {
 
         private final Map<String, List<LockImpl>> broadcastListeners = new ConcurrentHashMap<>();
-        private final Map<String, Pair<LockImpl, Supplier<Boolean>>> broadcastListenersMap = new ConcurrentHashMap<>();
-        private ThreadContext<Object> threadContext;
+        private final Map<String, ListenCondition> broadcastListenersMap = new ConcurrentHashMap<>();
+        // event key -> conditions to re-evaluate when event fired
+        private final Map<String, Set<ListenCondition>> dependents = new ConcurrentHashMap<>();
+        private final Set<ListenCondition> polledConditions = ConcurrentHashMap.newKeySet();
+        private ThreadContext<Void> threadContext;
     }
 }
@@ -90,6 +90,11 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
 
     private ContextBGP.ThreadContext<?> threadContext;
 
+    // resolved once by compile() after workspace parsed. Null if block not compiled, then raw json inputs/fields are used
+    private Scratch3Block scratch3Block;
+    private Map<String, CompiledInput> compiledInputs;
+    private Map<String, String> compiledFields;
+
     WorkspaceBlockImpl(String id, WorkspaceTabHolder workspaceTabHolder) {
         this.id = id;
         this.workspaceTabHolder = workspaceTabHolder;
@@ -139,9 +144,7 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
     @Override
     public <P> List<P> getMenuValues(
             String key, MenuBlock menuBlock, Class<P> type, String delimiter) {
-        String menuId = this.inputs.get(key).getString(1);
-        WorkspaceBlock refWorkspaceBlock = workspaceTabHolder.getBlocks().get(menuId);
-        String value = refWorkspaceBlock.getField(menuBlock.getName());
+        String value = getMenuBlock(key).getField(menuBlock.getName());
         List<String> items = Stream.of(value.split(delimiter)).collect(Collectors.toList());
         List<P> result = new ArrayList<>();
         if (Enum.class.isAssignableFrom(type)) {
@@ -206,7 +209,8 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
 
     @Override
     public String getField(String fieldName) {
-        return this.fields.get(fieldName).getString(0);
+        String value = compiledFields == null ? null : compiledFields.get(fieldName);
+        return value == null ? this.fields.get(fieldName).getString(0) : value;
     }
 
     @Override
@@ -269,6 +273,7 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
 
     @Override
     public State evaluate() {
+        ConditionDependencies.recordBlock(extensionId, opcode);
         return this.handleInternal(
                 scratch3Block -> {
                     try {
@@ -285,6 +290,9 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
     }
 
     public Scratch3Block getScratch3Block() {
+        if (scratch3Block != null) {
+            return scratch3Block;
+        }
         Scratch3ExtensionBlocks scratch3ExtensionBlocks =
                 workspaceTabHolder.getScratch3Blocks().get(extensionId);
         if (scratch3ExtensionBlocks == null) {
@@ -360,16 +368,28 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
         if (input instanceof Boolean) {
             return (boolean) input;
         }
+        CompiledInput compiledInput = compiledInputs == null ? null : compiledInputs.get(key);
+        if (compiledInput != null && compiledInput.block != null && compiledInput.primitive == null) {
+            return compiledInput.block.evaluate().boolValue();
+        }
         return workspaceTabHolder.getBlocks().get(cast(input)).evaluate().boolValue();
     }
 
     @Override
     public WorkspaceBlock getInputWorkspaceBlock(String key) {
+        CompiledInput input = compiledInputs == null ? null : compiledInputs.get(key);
+        if (input != null && input.block != null && input.primitive == null) {
+            return input.block;
+        }
         return workspaceTabHolder.getBlocks().get(cast(getInput(key, false)));
     }
 
     @Override
     public Object getInput(String key, boolean fetchValue) {
+        CompiledInput input = compiledInputs == null ? null : compiledInputs.get(key);
+        if (input != null) {
+            return getCompiledInput(input, fetchValue);
+        }
         JSONArray objects = this.inputs.get(key);
         JSONArray array;
 
@@ -413,6 +433,90 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
         }
     }
 
+    private Object getCompiledInput(CompiledInput input, boolean fetchValue) {
+        switch (input.type) {
+            case 3:
+                if (input.primitive != null) {
+                    return fetchValue ? input.fetchPrimitiveValue(context()) : input.ref;
+                }
+                if (fetchValue) {
+                    Object evaluateValue = input.block.evaluate();
+                    this.lastChildValue = new AtomicReference<>(State.of(evaluateValue));
+                    return evaluateValue;
+                }
+                return input.ref;
+            case 2:
+                return fetchValue ? input.block.evaluate() : input.ref;
+            default: // 5 - direct value, 1 - primitive ref
+                return input.ref;
+        }
+    }
+
+    /**
+     * Resolve scratch block handler, input references and constant field values once after workspace parsed, so evaluation
+     * not look up extension/opcode maps, block ids and not parse json on every call. Inputs which can't be resolved stay
+     * with json handling
+     */
+    void compile() {
+        Scratch3ExtensionBlocks scratch3ExtensionBlocks = workspaceTabHolder.getScratch3Blocks().get(extensionId);
+        this.scratch3Block = scratch3ExtensionBlocks == null ? null : scratch3ExtensionBlocks.getBlocksMap().get(opcode);
+
+        Map<String, CompiledInput> compiledInputs = new HashMap<>();
+        for (Map.Entry<String, JSONArray> entry : inputs.entrySet()) {
+            try {
+                CompiledInput input = compileInput(entry.getValue());
+                if (input != null) {
+                    compiledInputs.put(entry.getKey(), input);
+                }
+            } catch (Exception ignore) {
+                // malformed input reported on evaluation same as before
+            }
+        }
+        this.compiledInputs = compiledInputs;
+
+        Map<String, String> compiledFields = new HashMap<>();
+        for (Map.Entry<String, JSONArray> entry : fields.entrySet()) {
+            if (entry.getValue().opt(0) instanceof String value) {
+                compiledFields.put(entry.getKey(), value);
+            }
+        }
+        this.compiledFields = compiledFields;
+    }
+
+    private CompiledInput compileInput(JSONArray objects) {
+        JSONArray array;
+        switch (objects.getInt(0)) {
+            case 5:
+                return new CompiledInput(5, objects.getString(1), null, null, null, null);
+            case 3:
+                array = objects.optJSONArray(1);
+                if (array != null) {
+                    PrimitiveRef primitiveRef = PrimitiveRef.values()[array.getInt(0)];
+                    Object constantValue = primitiveRef == PrimitiveRef.VAR_PRIMITIVE ? null : primitiveRef.fetchValue(array, null);
+                    return new CompiledInput(3, primitiveRef.getRef(array).toString(), null, primitiveRef, array, constantValue);
+                }
+                return compileBlockRef(3, objects.getString(1));
+            case 1:
+                array = objects.optJSONArray(1);
+                if (array != null) {
+                    return new CompiledInput(1, PrimitiveRef.values()[array.getInt(0)].getRef(array), null, null, null, null);
+                }
+                Object ref = PrimitiveRef.values()[objects.getInt(0)].getRef(objects);
+                // menu inputs refer to shadow block with menu field
+                WorkspaceBlockImpl menuBlock = ref instanceof String refId ? workspaceTabHolder.getBlocks().get(refId) : null;
+                return new CompiledInput(1, ref, menuBlock, null, null, null);
+            case 2:
+                return compileBlockRef(2, objects.getString(1));
+            default:
+                return null;
+        }
+    }
+
+    private CompiledInput compileBlockRef(int type, String ref) {
+        WorkspaceBlockImpl block = workspaceTabHolder.getBlocks().get(ref);
+        return block == null ? null : new CompiledInput(type, ref, block, null, null, null);
+    }
+
     @Override
     public boolean hasInput(String key) {
         JSONArray objects = this.inputs.get(key);
@@ -539,10 +643,17 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
         log.log(level, "[" + this.extensionId + " -> " + this.opcode + "] - " + message, params);
     }
 
-    private <P> P getMenuValueInternal(String key, MenuBlock menuBlock, Class<P> type) {
+    private WorkspaceBlock getMenuBlock(String key) {
+        CompiledInput input = compiledInputs == null ? null : compiledInputs.get(key);
+        if (input != null && input.block != null) {
+            return input.block;
+        }
         String menuId = this.inputs.get(key).getString(1);
-        WorkspaceBlock refWorkspaceBlock = workspaceTabHolder.getBlocks().get(menuId);
-        String fieldValue = refWorkspaceBlock.getField(menuBlock.getName());
+        return workspaceTabHolder.getBlocks().get(menuId);
+    }
+
+    private <P> P getMenuValueInternal(String key, MenuBlock menuBlock, Class<P> type) {
+        String fieldValue = getMenuBlock(key).getField(menuBlock.getName());
         if (Enum.class.isAssignableFrom(type)) {
             for (P p : type.getEnumConstants()) {
                 if (((Enum<?>) p).name().equals(fieldValue)) {
@@ -590,6 +701,25 @@ public class WorkspaceBlockImpl implements WorkspaceBlock {
         return msg;
     }
 
+    /**
+     * Pre-linked input. type is scratch input type, ref is direct value or referenced block id
+     */
+    @AllArgsConstructor
+    private static class CompiledInput {
+
+        private final int type;
+        private final Object ref;
+        private final WorkspaceBlockImpl block;
+        private final PrimitiveRef primitive;
+        private final JSONArray array;
+        // primitive value which not depends on context
+        private final Object constantValue;
+
+        private Object fetchPrimitiveValue(Context context) {
+            return constantValue != null ? constantValue : primitive.fetchValue(array, context);
+        }
+    }
+
     @AllArgsConstructor
     @NoArgsConstructor
     private enum PrimitiveRef {
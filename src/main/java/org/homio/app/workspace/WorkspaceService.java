@@ -37,6 +37,7 @@ import org.homio.api.workspace.WorkspaceEventListener;
 import org.homio.api.workspace.scratch.Scratch3Block;
 import org.homio.api.workspace.scratch.Scratch3ExtensionBlocks;
 import org.homio.app.manager.AddonService;
+import org.homio.app.manager.common.ContextImpl;
 import org.homio.app.model.entity.WorkspaceEntity;
 import org.homio.app.setting.workspace.WorkspaceClearButtonSetting;
 import org.homio.app.spring.ContextRefreshed;
@@ -84,7 +85,7 @@ public class WorkspaceService implements ContextRefreshed {
     @Getter
     private final Set<Scratch3ExtensionImpl> extensions = new HashSet<>();
     // constructor parameters
-    private final Context context;
+    private final ContextImpl context;
     private final AddonService addonService;
     private Collection<WorkspaceEventListener> workspaceEventListeners;
     private Map<String, Scratch3ExtensionBlocks> scratch3Blocks;
@@ -157,9 +158,10 @@ public class WorkspaceService implements ContextRefreshed {
                             if (ONCE_EXECUTION_BLOCKS.contains(workspaceBlock.getOpcode())) {
                                 executeOnce(workspaceBlock);
                             } else {
+                                // scripts mostly wait in locks, so run them on script workers instead of scheduler pool
                                 this.context
                                         .bgp()
-                                        .builder("workspace-" + workspaceBlock.getId())
+                                        .scriptBuilder("workspace-" + workspaceBlock.getId())
                                         .tap(workspaceBlock::setThreadContext)
                                         .execute(createWorkspaceThread(workspaceBlock));
                             }
@@ -244,6 +246,10 @@ public class WorkspaceService implements ContextRefreshed {
                 }
             }
         }
+        // link all blocks once before run
+        for (WorkspaceBlockImpl workspaceBlock : workspaceTabHolder.blocks.values()) {
+            workspaceBlock.compile();
+        }
     }
 
     private WorkspaceBlockImpl getOrCreateWorkspaceBlock(
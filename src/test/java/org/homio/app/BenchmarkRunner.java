@@ -0,0 +1,43 @@
+package org.homio.app;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Minimal timed harness for micro benchmarks under src/test. Benchmarks are run by own main method, not by surefire. Warmup
+ * iterations run first so JIT compiles measured code, then average time and allocated bytes per operation are printed
+ */
+public final class BenchmarkRunner {
+
+    // consumes results, so JIT not eliminates measured code
+    private static volatile int sink;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void run(String name, int warmupIterations, int iterations, Supplier<?> operation) {
+        int hash = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            hash ^= System.identityHashCode(operation.get());
+        }
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            hash ^= System.identityHashCode(operation.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        sink = hash;
+        System.out.printf("%-50s %,14.1f ns/op %,12.1f B/op (%,d ops)%n", name, (double) elapsed / iterations,
+                allocatedBefore < 0 ? Double.NaN : (double) allocated / iterations, iterations);
+    }
+
+    // -1 if JVM not supports per thread allocation counter
+    private static long getAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
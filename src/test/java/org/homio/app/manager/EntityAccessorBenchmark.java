@@ -0,0 +1,113 @@
+package org.homio.app.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.reflect.MethodUtils;
+import org.homio.app.BenchmarkRunner;
+import org.json.JSONObject;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.MethodInterceptor;
+
+/**
+ * Delayed entity update: precomputed accessor snapshot/diff against previous per-call CGLIB proxy which recorded setter calls
+ * and replayed them by reflection. Run main method
+ */
+public class EntityAccessorBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        EntityAccessor accessor = EntityAccessor.of(DeviceEntity.class);
+        DeviceEntity entity = new DeviceEntity();
+        DeviceEntity target = new DeviceEntity();
+        int[] counter = {0};
+        // typical device status report: few simple properties and one json key
+        Consumer<DeviceEntity> update = device -> {
+            int n = counter[0]++;
+            device.setStatus(n % 2 == 0 ? "ONLINE" : "OFFLINE");
+            device.setValue(n);
+            device.setLastSeen(n);
+            device.setJsonData("signal", n % 100);
+        };
+
+        for (int round = 0; round < 3; round++) {
+            BenchmarkRunner.run("proxy: record + replay", WARMUP, ITERATIONS, () -> {
+                Map<String, Object[]> changes = updateWithProxy(entity, update);
+                replay(target, changes);
+                return changes;
+            });
+            BenchmarkRunner.run("accessor: snapshot + diff + apply", WARMUP, ITERATIONS, () -> {
+                Object[] snapshot = accessor.snapshot(entity);
+                update.accept(entity);
+                EntityAccessor.Changes changes = accessor.changes(entity, snapshot);
+                if (changes != null) {
+                    changes.apply(target);
+                }
+                return changes;
+            });
+        }
+    }
+
+    // same as updateDelayed did before accessors
+    private static Map<String, Object[]> updateWithProxy(DeviceEntity entity, Consumer<DeviceEntity> consumer) {
+        Map<String, Object[]> changeFields = new HashMap<>();
+        MethodInterceptor handler = (obj, method, args, proxy) -> {
+            String setName = method.getName();
+            if (setName.startsWith("set")) {
+                Object oldValue;
+                try {
+                    oldValue = MethodUtils.invokeMethod(entity, setName.replaceFirst("set", "get"));
+                } catch (NoSuchMethodException ex) {
+                    oldValue = MethodUtils.invokeMethod(entity, setName.replaceFirst("set", "is"));
+                }
+                Object newValue = setName.startsWith("setJsonData") ? args[1] : args[0];
+                if (!Objects.equals(oldValue, newValue)) {
+                    changeFields.put(setName, args);
+                    MethodUtils.invokeMethod(entity, setName, args);
+                }
+            }
+            if (method.getReturnType().isAssignableFrom(entity.getClass())) {
+                proxy.invoke(entity, args);
+                return obj;
+            }
+            return proxy.invoke(entity, args);
+        };
+        consumer.accept((DeviceEntity) Enhancer.create(DeviceEntity.class, handler));
+        return changeFields;
+    }
+
+    private static void replay(DeviceEntity target, Map<String, Object[]> changeFields) {
+        try {
+            for (Map.Entry<String, Object[]> entry : changeFields.entrySet()) {
+                MethodUtils.invokeMethod(target, entry.getKey(), entry.getValue());
+            }
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class DeviceEntity {
+
+        private String name = "device";
+        private String ieeeAddress = "0x00158d0001a2b3c4";
+        private String status;
+        private String place = "kitchen";
+        private double value;
+        private long lastSeen;
+        private int retries;
+        private boolean online = true;
+        @Setter(lombok.AccessLevel.NONE)
+        private JSONObject jsonData = new JSONObject().put("model", "sensor").put("signal", 0);
+
+        public void setJsonData(String key, Object value) {
+            jsonData.put(key, value);
+        }
+    }
+}
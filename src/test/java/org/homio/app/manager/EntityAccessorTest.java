@@ -0,0 +1,121 @@
+package org.homio.app.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.homio.app.manager.EntityAccessor.Changes;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class EntityAccessorTest {
+
+    private final EntityAccessor accessor = EntityAccessor.of(TestEntity.class);
+
+    @Test
+    public void testNoChanges() {
+        TestEntity entity = new TestEntity();
+        Object[] snapshot = accessor.snapshot(entity);
+        assertNull(accessor.changes(entity, snapshot));
+    }
+
+    @Test
+    public void testSimplePropertyChange() {
+        TestEntity entity = new TestEntity();
+        Object[] snapshot = accessor.snapshot(entity);
+        entity.setName("updated");
+        Changes changes = accessor.changes(entity, snapshot);
+        assertNotNull(changes);
+
+        TestEntity target = new TestEntity();
+        target.setCount(5);
+        changes.apply(target);
+        assertEquals("updated", target.getName());
+        assertEquals(5, target.getCount());
+    }
+
+    @Test
+    public void testJsonDataWithoutSetter() {
+        TestEntity entity = new TestEntity();
+        entity.setJsonData("keep", 1);
+        entity.setJsonData("removed", true);
+        Object[] snapshot = accessor.snapshot(entity);
+        entity.setJsonData("status", "ONLINE");
+        entity.getJsonData().remove("removed");
+        Changes changes = accessor.changes(entity, snapshot);
+        assertNotNull(changes);
+
+        TestEntity target = new TestEntity();
+        target.setJsonData("other", "value");
+        target.setJsonData("removed", true);
+        changes.apply(target);
+        assertEquals("ONLINE", target.getJsonData().getString("status"));
+        assertEquals("value", target.getJsonData().getString("other"));
+        assertFalse(target.getJsonData().has("removed"));
+        // only changed keys replayed
+        assertFalse(target.getJsonData().has("keep"));
+    }
+
+    @Test
+    public void testMergeCreatesNewChanges() {
+        TestEntity entity = new TestEntity();
+        Object[] snapshot = accessor.snapshot(entity);
+        entity.setJsonData("a", 1);
+        entity.setName("first");
+        Changes first = accessor.changes(entity, snapshot);
+
+        snapshot = accessor.snapshot(entity);
+        entity.setJsonData("b", 2);
+        entity.setName("second");
+        Changes second = accessor.changes(entity, snapshot);
+
+        Changes merged = first.merge(second);
+
+        TestEntity target = new TestEntity();
+        merged.apply(target);
+        assertEquals("second", target.getName());
+        assertEquals(1, target.getJsonData().getInt("a"));
+        assertEquals(2, target.getJsonData().getInt("b"));
+
+        // merge not mutates original changes
+        TestEntity firstTarget = new TestEntity();
+        first.apply(firstTarget);
+        assertEquals("first", firstTarget.getName());
+        assertFalse(firstTarget.getJsonData().has("b"));
+    }
+
+    @Test
+    public void testRecordedJsonValueIsCopy() {
+        TestEntity entity = new TestEntity();
+        Object[] snapshot = accessor.snapshot(entity);
+        JSONObject nested = new JSONObject().put("x", 1);
+        entity.setJsonData("nested", nested);
+        Changes changes = accessor.changes(entity, snapshot);
+        nested.put("x", 2);
+
+        TestEntity target = new TestEntity();
+        changes.apply(target);
+        assertEquals(1, target.getJsonData().getJSONObject("nested").getInt("x"));
+    }
+
+    @Getter
+    @Setter
+    public static class TestEntity {
+
+        private String name;
+        private int count;
+        @Setter(lombok.AccessLevel.NONE)
+        private TestJson jsonData = new TestJson();
+
+        public void setJsonData(String key, Object value) {
+            jsonData.put(key, value);
+        }
+    }
+
+    public static class TestJson extends JSONObject {
+
+    }
+}
@@ -0,0 +1,116 @@
+package org.homio.app.manager.bgp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class IntervalTimingWheelTest {
+
+    private Runnable ticker;
+    private IntervalTimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        wheel = createWheel(Duration.ZERO);
+    }
+
+    @Test
+    public void testInsertAndTick() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        wheel.scheduleWithFixedDelay(runs::incrementAndGet, Duration.ZERO, Duration.ofHours(1));
+        assertEquals(1, getStatistic("wheelTasks"));
+
+        tick();
+        assertEquals(1, runs.get());
+        // rescheduled for next period
+        assertEquals(1, getStatistic("wheelTasks"));
+
+        tick();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testNotRunBeforeDelay() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        wheel.scheduleWithFixedDelay(runs::incrementAndGet, Duration.ofHours(1), Duration.ofHours(1));
+        tick();
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testPeriodicRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        wheel.scheduleWithFixedDelay(runs::incrementAndGet, Duration.ZERO, Duration.ofMillis(5));
+        tick();
+        Thread.sleep(50);
+        tick();
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void testAlignmentNotAddsStep() throws InterruptedException {
+        wheel = createWheel(Duration.ofHours(1));
+        ScheduledFuture<?> future = wheel.scheduleWithFixedDelay(() -> {}, Duration.ZERO, Duration.ofHours(1));
+        tick();
+        // next run snaps to nearest hour grid point from wheel start instead of next one
+        long delay = future.getDelay(TimeUnit.MINUTES);
+        assertTrue("Delay: " + delay, delay >= 59 && delay <= 60);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = wheel.scheduleWithFixedDelay(runs::incrementAndGet, Duration.ZERO, Duration.ofHours(1));
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertEquals(0, getStatistic("wheelTasks"));
+
+        tick();
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testFailedTaskNotRescheduled() throws InterruptedException {
+        ScheduledFuture<?> future = wheel.scheduleWithFixedDelay(() -> {
+            throw new IllegalStateException("fail");
+        }, Duration.ZERO, Duration.ofMillis(1));
+        tick();
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals(0, getStatistic("wheelTasks"));
+    }
+
+    // ticks are fired by test and due tasks run in test thread
+    private IntervalTimingWheel createWheel(Duration maxAlignment) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler() {
+            @Override
+            public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+                ticker = task;
+                return null;
+            }
+        };
+        return new IntervalTimingWheel(scheduler, Runnable::run, Duration.ofMillis(1), maxAlignment, Duration.ZERO);
+    }
+
+    // wait for at least one wheel tick and fire it
+    private void tick() throws InterruptedException {
+        Thread.sleep(10);
+        ticker.run();
+    }
+
+    private long getStatistic(String key) {
+        Map<String, Object> statistic = new HashMap<>();
+        wheel.fillStatistic(statistic);
+        return ((Number) statistic.get(key)).longValue();
+    }
+}
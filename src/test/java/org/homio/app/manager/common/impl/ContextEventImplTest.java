@@ -0,0 +1,57 @@
+package org.homio.app.manager.common.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.homio.api.state.State;
+import org.homio.app.manager.common.ContextImpl;
+import org.homio.app.manager.common.impl.ContextEventImpl.OverflowStrategy;
+import org.junit.Test;
+
+public class ContextEventImplTest {
+
+    // same as ContextEventImpl.EVENT_QUEUE_CAPACITY
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    @Test
+    public void testCoalescedKeyDeliversAfterTicketDropped() throws InterruptedException {
+        ContextEventImpl events = new ContextEventImpl(mock(ContextImpl.class));
+        events.setOverflowStrategy(OverflowStrategy.DropOldest);
+        events.setCoalescePolicy("coalesced", Duration.ZERO);
+        BlockingQueue<State> received = new LinkedBlockingQueue<>();
+        events.addEventListener("coalesced", "test", received::add);
+
+        // ticket of coalesced key is head of shard queue
+        State first = State.of(1);
+        events.fireEvent("coalesced", first);
+        String filler = findKeyOfSameShard(events, "coalesced");
+        for (int i = 0; i <= QUEUE_CAPACITY; i++) {
+            events.fireEvent(filler, State.of(i));
+        }
+        // ticket was evicted, but it's not an event
+        assertEquals(0, events.getStatistic().getDropped());
+
+        events.startEventShards();
+        assertSame(first, received.poll(10, TimeUnit.SECONDS));
+
+        State second = State.of(2);
+        events.fireEvent("coalesced", second);
+        assertSame(second, received.poll(10, TimeUnit.SECONDS));
+        assertTrue(received.isEmpty());
+    }
+
+    private static String findKeyOfSameShard(ContextEventImpl events, String key) {
+        int shard = events.getShardIndex(key);
+        for (int i = 0; ; i++) {
+            if (events.getShardIndex("filler-" + i) == shard) {
+                return "filler-" + i;
+            }
+        }
+    }
+}
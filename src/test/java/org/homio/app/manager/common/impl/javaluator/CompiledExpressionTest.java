@@ -0,0 +1,70 @@
+package org.homio.app.manager.common.impl.javaluator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import org.homio.app.manager.common.impl.ContextVarImpl.TransformVariableContext.ExtendedDoubleEvaluator;
+import org.junit.Test;
+
+public class CompiledExpressionTest {
+
+    @Test
+    public void testOperatorPrecedence() {
+        assertEquals(14D, evaluate("2 + 3 * 4"), 0);
+        assertEquals(20D, evaluate("(2 + 3) * 4"), 0);
+        assertEquals(1D, evaluate("7 % 3"), 0);
+        assertEquals(2.5D, evaluate("10 / 4"), 0);
+    }
+
+    @Test
+    public void testPowerAndUnaryMinus() {
+        assertEquals(-4D, evaluate("-2^2"), 0);
+        assertEquals(64D, evaluate("2^3^2"), 0);
+        assertEquals(Math.pow(2, -9), evaluate("2^-3^2"), 0);
+        assertEquals(0.25D, evaluate("2^-2"), 0);
+    }
+
+    @Test
+    public void testFunctionsAndConstants() {
+        assertEquals(3D, evaluate("max(1, 3, 2)"), 0);
+        assertEquals(2D, evaluate("avg(1, 2, 3)"), 0);
+        assertEquals(5D, evaluate("abs(-5)"), 0);
+        assertEquals(Math.PI, evaluate("pi"), 0);
+        assertEquals(1E3, evaluate("1E+3"), 0);
+        assertEquals(3600D, evaluate("PT1H"), 0);
+    }
+
+    @Test
+    public void testSameResultAsEvaluator() {
+        for (String code : List.of("2^3^2", "-2^2", "2^-2", "2^-3^2", "2*-3", "-(2+1)^2", "2 + 3 * 4", "(2 + 3) * 4",
+            "7 % 3", "10 / 4", "max(1, 3, 2)", "abs(-5)", "pi")) {
+            Object expected = new ExtendedDoubleEvaluator(null).evaluate(code, new DynamicVariableSet(List.of()));
+            assertEquals(code, ((Number) expected).doubleValue(), evaluate(code), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFunction() {
+        compile("unknown(1)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnbalancedBrackets() {
+        compile("(1 + 2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidArgumentAtEvaluation() {
+        // compiles fine, fails on evaluation only
+        compile("ln(-1)").evaluate();
+    }
+
+    private static double evaluate(String code) {
+        return (Double) compile(code).evaluate();
+    }
+
+    private static CompiledExpression compile(String code) {
+        // expressions without VAR/aggregation never touch sources or variable context
+        return CompiledExpression.compile(code, List.of(), null);
+    }
+}
@@ -0,0 +1,88 @@
+package org.homio.app.rest.widget;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.homio.api.entity.widget.AggregationType;
+import org.homio.app.BenchmarkRunner;
+
+/**
+ * Compares ChartBuckets with previous List&lt;List&lt;Float&gt;&gt; bucketing (linear bucket lookup, boxed values, stream
+ * aggregation per bucket) on 1M points spread over 500 buckets
+ */
+public final class ChartBucketsBenchmark {
+
+    private static final int POINTS = 1_000_000;
+    private static final int BUCKETS = 500;
+    private static final long STEP = 1000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        List<Date> dates = new ArrayList<>(BUCKETS);
+        long bucketSize = POINTS * STEP / BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            dates.add(new Date(i * bucketSize));
+        }
+        Random random = new Random(1);
+        List<Object[]> points = new ArrayList<>(POINTS);
+        for (int i = 0; i < POINTS; i++) {
+            points.add(new Object[]{i * STEP, random.nextFloat() * 100});
+        }
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("Round " + round);
+            for (AggregationType aggregationType : new AggregationType[]{AggregationType.Average, AggregationType.Median}) {
+                BenchmarkRunner.run("buckets " + aggregationType, WARMUP, ITERATIONS, () -> {
+                    ChartBuckets buckets = ChartBuckets.of(dates, aggregationType);
+                    buckets.addAll(points);
+                    return buckets.aggregate();
+                });
+                BenchmarkRunner.run("list of lists " + aggregationType, WARMUP, ITERATIONS,
+                        () -> aggregate(convertValuesToFloat(dates, points), aggregationType));
+            }
+        }
+    }
+
+    private static List<List<Float>> convertValuesToFloat(List<Date> dates, List<Object[]> chartItems) {
+        List<List<Float>> values = new ArrayList<>(dates.size());
+        for (int i = 0; i < dates.size(); i++) {
+            values.add(new ArrayList<>());
+        }
+        for (Object[] chartItem : chartItems) {
+            int index = getDateIndex(dates, (long) chartItem[0]);
+            if (index >= 0) {
+                values.get(index).add(((Number) chartItem[1]).floatValue());
+            }
+        }
+        return values;
+    }
+
+    private static int getDateIndex(List<Date> dateList, long time) {
+        for (int i = 0; i < dateList.size(); i++) {
+            if (time < dateList.get(i).getTime()) {
+                return i - 1;
+            }
+        }
+        return dateList.size() - 1;
+    }
+
+    private static List<Float> aggregate(List<List<Float>> values, AggregationType aggregationType) {
+        return values.stream().map(items -> {
+                    if (items.isEmpty()) {
+                        return null;
+                    } else if (items.size() == 1) {
+                        return items.get(0);
+                    }
+                    Stream<Float> stream = items.stream();
+                    if (aggregationType.isRequireSorting()) {
+                        stream = stream.sorted();
+                    }
+                    return aggregationType.evaluate(stream);
+                })
+                .collect(Collectors.toList());
+    }
+}
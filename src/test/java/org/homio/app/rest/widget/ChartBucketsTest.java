@@ -0,0 +1,100 @@
+package org.homio.app.rest.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.homio.api.entity.widget.AggregationType;
+import org.junit.Test;
+
+public class ChartBucketsTest {
+
+    @Test
+    public void testIndexOfUniformBoundaries() {
+        ChartBuckets buckets = new ChartBuckets(new long[]{100, 200, 300}, AggregationType.Sum);
+        assertEquals(-1, buckets.indexOf(99));
+        assertEquals(0, buckets.indexOf(100));
+        assertEquals(0, buckets.indexOf(199));
+        assertEquals(1, buckets.indexOf(200));
+        assertEquals(2, buckets.indexOf(300));
+        // last bucket is open-ended
+        assertEquals(2, buckets.indexOf(10_000));
+    }
+
+    @Test
+    public void testIndexOfNonUniformBoundaries() {
+        ChartBuckets buckets = new ChartBuckets(new long[]{100, 150, 400, 400, 1000}, AggregationType.Sum);
+        assertEquals(-1, buckets.indexOf(0));
+        assertEquals(0, buckets.indexOf(149));
+        assertEquals(1, buckets.indexOf(150));
+        assertEquals(1, buckets.indexOf(399));
+        // duplicated boundary resolves to last bucket which starts at time
+        assertEquals(3, buckets.indexOf(400));
+        assertEquals(4, buckets.indexOf(5000));
+    }
+
+    @Test
+    public void testEmptyBoundaries() {
+        ChartBuckets buckets = new ChartBuckets(new long[0], AggregationType.Sum);
+        assertEquals(-1, buckets.indexOf(100));
+        assertEquals(0, buckets.aggregate().size());
+    }
+
+    @Test
+    public void testAggregations() {
+        assertEquals(6F, aggregate(AggregationType.Sum), 0);
+        assertEquals(1.5F, aggregate(AggregationType.Average), 0);
+        assertEquals(2F, aggregate(AggregationType.AverageNoZero), 0);
+        assertEquals(0F, aggregate(AggregationType.Min), 0);
+        assertEquals(3F, aggregate(AggregationType.Max), 0);
+        assertEquals(4F, aggregate(AggregationType.Count), 0);
+        assertEquals(3F, aggregate(AggregationType.First), 0);
+        assertEquals(2F, aggregate(AggregationType.Last), 0);
+        assertEquals(1.5F, aggregate(AggregationType.Median), 0);
+    }
+
+    @Test
+    public void testEmptyBucketIsNull() {
+        ChartBuckets buckets = new ChartBuckets(new long[]{0, 10, 20}, AggregationType.Average);
+        buckets.add(5, 1);
+        buckets.add(25, 3);
+        List<Float> result = buckets.aggregate();
+        assertEquals(1F, result.get(0), 0);
+        assertNull(result.get(1));
+        assertEquals(3F, result.get(2), 0);
+    }
+
+    @Test
+    public void testSamplesBeforeFirstBucketIgnored() {
+        ChartBuckets buckets = new ChartBuckets(new long[]{100, 200}, AggregationType.Count);
+        buckets.addAll(List.of(new Object[]{50L, 1F}, new Object[]{150L, 1F}));
+        assertEquals(1F, buckets.aggregate(0), 0);
+        assertNull(buckets.aggregate(1));
+    }
+
+    @Test
+    public void testApproximateMedian() {
+        List<Float> values = new ArrayList<>();
+        for (int i = 1; i <= 1001; i++) {
+            values.add((float) i);
+        }
+        Collections.shuffle(values, new Random(1));
+        ChartBuckets buckets = new ChartBuckets(new long[]{0}, AggregationType.Median);
+        for (Float value : values) {
+            buckets.add(1, value);
+        }
+        assertEquals(501F, buckets.aggregate(0), 25F);
+    }
+
+    private static float aggregate(AggregationType aggregationType) {
+        ChartBuckets buckets = new ChartBuckets(new long[]{0}, aggregationType);
+        buckets.add(1, 3);
+        buckets.add(2, 0);
+        buckets.add(3, 1);
+        buckets.add(4, 2);
+        return buckets.aggregate(0);
+    }
+}
@@ -0,0 +1,120 @@
+package org.homio.app.rest.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.homio.app.rest.widget.ChartDownsampler.Mode;
+import org.homio.app.rest.widget.WidgetChartsController.TimeSeriesChartData;
+import org.junit.Test;
+
+public class ChartDownsamplerTest {
+
+    @Test
+    public void testDisabled() {
+        assertNull(ChartDownsampler.of(null, 100));
+        assertNull(ChartDownsampler.of(Mode.None, 100));
+        assertNull(ChartDownsampler.of(Mode.LTTB, null));
+        assertNull(ChartDownsampler.of(Mode.LTTB, 2));
+        assertNotNull(ChartDownsampler.of(Mode.MinMax, 3));
+    }
+
+    @Test
+    public void testNotDownsampleSmallSeries() {
+        List<Object[]> samples = createSamples(10, 5);
+        assertEquals(10, ChartDownsampler.of(Mode.LTTB, 10).downsample(samples).size());
+    }
+
+    @Test
+    public void testSkipNonNumericAndSort() {
+        List<Object[]> samples = new ArrayList<>();
+        samples.add(new Object[]{3L, 1F});
+        samples.add(new Object[]{1L, "text"});
+        samples.add(new Object[]{2L, 2});
+        List<Object[]> result = ChartDownsampler.of(Mode.LTTB, 10).downsample(samples);
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(0)[0]);
+        assertEquals(3L, result.get(1)[0]);
+    }
+
+    @Test
+    public void testLttb() {
+        List<Long> timestamps = timestamps(ChartDownsampler.of(Mode.LTTB, 50).downsample(createSamples(1000, 500)));
+        assertEquals(50, timestamps.size());
+        assertEquals(0L, (long) timestamps.get(0));
+        assertEquals(999L, (long) timestamps.get(timestamps.size() - 1));
+        assertTrue(timestamps.contains(500L));
+        assertSorted(timestamps);
+    }
+
+    @Test
+    public void testMinMax() {
+        List<Object[]> samples = createSamples(1000, 500);
+        samples.get(700)[1] = -100F;
+        List<Long> timestamps = timestamps(ChartDownsampler.of(Mode.MinMax, 50).downsample(samples));
+        assertTrue(timestamps.size() <= 50);
+        assertTrue(timestamps.contains(500L));
+        assertTrue(timestamps.contains(700L));
+        assertEquals(0L, (long) timestamps.get(0));
+        assertEquals(999L, (long) timestamps.get(timestamps.size() - 1));
+        assertSorted(timestamps);
+    }
+
+    @Test
+    public void testMergeDatasets() {
+        List<Object[]> first = createSamples(1000, 500);
+        // second series sampled after first one
+        List<Object[]> second = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            second.add(new Object[]{1000L + i, (float) i});
+        }
+        TimeSeriesChartData<ChartDataset> data = new TimeSeriesChartData<>();
+        data.getDatasets().add(new ChartDataset("first", "first"));
+        data.getDatasets().add(new ChartDataset("second", "second"));
+        ChartDownsampler.of(Mode.LTTB, 40).apply(data, List.of(first, second));
+
+        List<Long> timestamps = data.getTimestamp();
+        assertEquals(45, timestamps.size());
+        assertSorted(timestamps);
+        List<Float> firstValues = data.getDatasets().get(0).getData();
+        List<Float> secondValues = data.getDatasets().get(1).getData();
+        assertEquals(timestamps.size(), firstValues.size());
+        assertEquals(timestamps.size(), secondValues.size());
+        for (int i = 0; i < timestamps.size(); i++) {
+            long timestamp = timestamps.get(i);
+            if (timestamp >= 1000) {
+                assertEquals(timestamp - 1000, secondValues.get(i), 0);
+                assertNull(firstValues.get(i));
+            } else {
+                assertNotNull(firstValues.get(i));
+                assertNull(secondValues.get(i));
+            }
+        }
+    }
+
+    // flat series with single peak
+    private static List<Object[]> createSamples(int size, int peakIndex) {
+        List<Object[]> samples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            samples.add(new Object[]{(long) i, i == peakIndex ? 100F : 1F});
+        }
+        return samples;
+    }
+
+    private static List<Long> timestamps(List<Object[]> samples) {
+        List<Long> timestamps = new ArrayList<>();
+        for (Object[] sample : samples) {
+            timestamps.add((long) sample[0]);
+        }
+        return timestamps;
+    }
+
+    private static void assertSorted(List<Long> timestamps) {
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i - 1) < timestamps.get(i));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.homio.app.service.mem;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.homio.app.service.mem.RollupTier.Stats;
+import org.junit.Test;
+
+public class RollupTierTest {
+
+    @Test
+    public void testBucketStart() {
+        RollupTier tier = new RollupTier(60);
+        assertEquals(0, tier.bucketStart(59));
+        assertEquals(60, tier.bucketStart(60));
+        assertEquals(-60, tier.bucketStart(-1));
+        assertEquals(3, tier.countBuckets(10, 150));
+    }
+
+    @Test
+    public void testAccumulate() {
+        RollupTier tier = new RollupTier(10);
+        tier.add(1, ColumnChunk.INT, 4);
+        tier.add(5, ColumnChunk.INT, 2);
+        tier.add(12, ColumnChunk.DOUBLE, 1.5);
+        tier.add(25, ColumnChunk.STRING, 0);
+        // out of order sample goes into existing bucket
+        tier.add(3, ColumnChunk.INT, 6);
+
+        Stats stats = new Stats();
+        tier.accumulate(0, 20, stats);
+        assertEquals(5, stats.count);
+        assertEquals(4, stats.numericCount);
+        assertEquals(13.5, stats.sum, 0);
+        assertEquals(1.5, (double) stats.min(), 0);
+        assertEquals(6, stats.max());
+
+        stats = new Stats();
+        tier.accumulate(0, 0, stats);
+        assertEquals(3, stats.count);
+        assertEquals(12L, stats.sum());
+    }
+
+    @Test
+    public void testCollectAverages() {
+        RollupTier tier = new RollupTier(10);
+        tier.add(1, ColumnChunk.INT, 1);
+        tier.add(2, ColumnChunk.INT, 3);
+        tier.add(15, ColumnChunk.INT, 10);
+        tier.add(35, ColumnChunk.STRING, 0);
+
+        List<Object[]> asc = new ArrayList<>();
+        tier.collectAverages(5, 40, true, asc);
+        assertEquals(2, asc.size());
+        assertEquals(0L, asc.get(0)[0]);
+        assertEquals(2F, asc.get(0)[1]);
+        assertEquals(10L, asc.get(1)[0]);
+        assertEquals(10F, asc.get(1)[1]);
+
+        List<Object[]> desc = new ArrayList<>();
+        tier.collectAverages(5, 40, false, desc);
+        assertEquals(10L, desc.get(0)[0]);
+        assertEquals(0L, desc.get(1)[0]);
+    }
+
+    @Test
+    public void testDropBefore() {
+        RollupTier tier = new RollupTier(10);
+        for (int i = 0; i < 100; i += 5) {
+            tier.add(i, ColumnChunk.INT, 1);
+        }
+        tier.dropBefore(25);
+
+        Stats stats = new Stats();
+        tier.accumulate(0, 100, stats);
+        // bucket [20, 30) still has samples at or after 25
+        assertEquals(16, stats.count);
+
+        tier.dropBefore(1000);
+        stats = new Stats();
+        tier.accumulate(0, 1000, stats);
+        assertEquals(0, stats.count);
+    }
+}
@@ -0,0 +1,130 @@
+package org.homio.app.service.mem;
+
+import static org.homio.api.entity.widget.AggregationType.Average;
+import static org.homio.api.entity.widget.AggregationType.AverageNoZero;
+import static org.homio.api.entity.widget.AggregationType.Count;
+import static org.homio.api.entity.widget.AggregationType.Last;
+import static org.homio.api.entity.widget.AggregationType.Max;
+import static org.homio.api.entity.widget.AggregationType.Median;
+import static org.homio.api.entity.widget.AggregationType.Min;
+import static org.homio.api.entity.widget.AggregationType.Sum;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import org.homio.api.entity.widget.AggregationType;
+import org.homio.app.model.var.WorkspaceVariableMessage;
+import org.junit.Test;
+
+public class SlidingWindowAggregateTest {
+
+    private static final long WINDOW = 60_000;
+
+    @Test
+    public void testNotReadyUntilLoaded() {
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        aggregate.add(System.currentTimeMillis(), 1);
+        assertNull(aggregate.get(Sum));
+    }
+
+    @Test
+    public void testAggregations() {
+        long now = System.currentTimeMillis();
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        aggregate.load(List.of(), now - 10);
+        aggregate.add(now - 4, 4);
+        aggregate.add(now - 3, 1);
+        aggregate.add(now - 2, 3);
+        aggregate.add(now - 1, 2);
+
+        assertEquals(4L, aggregate.get(Count));
+        assertEquals(10D, (double) aggregate.get(Sum), 0);
+        assertEquals(2.5D, (double) aggregate.get(Average), 0);
+        assertEquals(1D, (double) aggregate.get(Min), 0);
+        assertEquals(4D, (double) aggregate.get(Max), 0);
+        assertEquals(2.5D, (double) aggregate.get(Median), 0);
+    }
+
+    @Test
+    public void testBufferedSamplesNotCountedTwice() {
+        long now = System.currentTimeMillis();
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        // arrived while history was reading. First one already in history
+        aggregate.add(now - 20, 5);
+        aggregate.add(now - 5, 7);
+        aggregate.load(List.<Object[]>of(new Object[]{now - 30, 1F}, new Object[]{now - 20, 5F}), now - 10);
+
+        assertEquals(3L, aggregate.get(Count));
+        assertEquals(13D, (double) aggregate.get(Sum), 0);
+    }
+
+    @Test
+    public void testEviction() {
+        long now = System.currentTimeMillis();
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        aggregate.load(List.<Object[]>of(new Object[]{now - WINDOW * 2, 100F}), now - WINDOW);
+        aggregate.add(now - 1, 2);
+
+        assertEquals(1L, aggregate.get(Count));
+        assertEquals(2D, (double) aggregate.get(Max), 0);
+    }
+
+    @Test
+    public void testOverflowAnsweredFromStorage() {
+        long now = System.currentTimeMillis();
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 2);
+        aggregate.load(List.of(), now - 10);
+        aggregate.add(now - 3, 1);
+        aggregate.add(now - 2, 1);
+        aggregate.add(now - 1, 1);
+        assertNull(aggregate.get(Count));
+    }
+
+    @Test
+    public void testNonNumericSamples() {
+        long now = System.currentTimeMillis();
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        aggregate.load(List.<Object[]>of(new Object[]{now - 5, true}, new Object[]{now - 4, 0}), now - 4);
+        aggregate.add(now - 3, 4);
+        aggregate.add(now - 2, "text");
+
+        // counted, but not part of numeric aggregations
+        assertEquals(4L, aggregate.get(Count));
+        assertEquals(4D, (double) aggregate.get(Sum), 0);
+        assertEquals(2D, (double) aggregate.get(Average), 0);
+        assertEquals(4D, (double) aggregate.get(AverageNoZero), 0);
+        // storage compares original non-numeric values
+        assertNull(aggregate.get(Max));
+        assertNull(aggregate.get(Last));
+    }
+
+    @Test
+    public void testSameResultAsStorage() {
+        assertSameAsStorage(List.of(3, 0, 2.5F, 0L, 7.25D, -1, 0F));
+        assertSameAsStorage(List.of(3, 0, 2.5F, true, "text", 0L, 7.25D, false, -1, 0F));
+    }
+
+    private static void assertSameAsStorage(List<Object> values) {
+        long now = System.currentTimeMillis();
+        ColumnarDataStorageService<WorkspaceVariableMessage> storage = new ColumnarDataStorageService<>(WorkspaceVariableMessage.class);
+        SlidingWindowAggregate aggregate = new SlidingWindowAggregate(WINDOW, 100);
+        aggregate.load(List.of(), now - 100);
+        for (int i = 0; i < values.size(); i++) {
+            long timestamp = now - 50 + i;
+            storage.saveValue(timestamp, values.get(i));
+            aggregate.add(timestamp, values.get(i));
+        }
+
+        for (AggregationType aggregationType : AggregationType.values()) {
+            if (SlidingWindowAggregate.isSupported(aggregationType)) {
+                Object windowValue = aggregate.get(aggregationType);
+                // null means window delegates to storage
+                if (windowValue != null) {
+                    Object storageValue = storage.aggregate(now - WINDOW, null, null, null, aggregationType, true);
+                    assertEquals(aggregationType + " of " + values, ((Number) storageValue).doubleValue(),
+                        ((Number) windowValue).doubleValue(), 1E-6);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.homio.app.service.mem;
+
+import java.math.BigDecimal;
+import org.homio.app.BenchmarkRunner;
+import org.homio.app.model.var.WorkspaceVariableMessage;
+
+/**
+ * Time and allocation per variable write: previous path (BigDecimal parsing + WorkspaceVariableMessage per save) against
+ * current one (direct decimal parsing + ColumnarDataStorageService.saveValue)
+ */
+public final class VariableWriteBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+    private static final String[] VALUES = {"21.5", "-3.25", "1024", "0.125", "77"};
+
+    public static void main(String[] args) {
+        ColumnarDataStorageService<WorkspaceVariableMessage> entityStorage = createStorage();
+        ColumnarDataStorageService<WorkspaceVariableMessage> valueStorage = createStorage();
+        int[] counter = new int[1];
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("Round " + round);
+            BenchmarkRunner.run("BigDecimal + save(entity)", WARMUP, ITERATIONS, () -> {
+                Object value = convertBigDecimal(new BigDecimal(VALUES[counter[0]++ % VALUES.length]));
+                return entityStorage.save(new WorkspaceVariableMessage(value));
+            });
+            BenchmarkRunner.run("parseFloat + saveValue", WARMUP, ITERATIONS, () -> {
+                String value = VALUES[counter[0]++ % VALUES.length];
+                valueStorage.saveValue(System.currentTimeMillis(),
+                        value.indexOf('.') == -1 ? (Object) Long.parseLong(value) : (Object) Float.parseFloat(value));
+                return valueStorage;
+            });
+        }
+    }
+
+    // keep memory bounded, so eviction is part of measured write as in real variables
+    private static ColumnarDataStorageService<WorkspaceVariableMessage> createStorage() {
+        ColumnarDataStorageService<WorkspaceVariableMessage> storage = new ColumnarDataStorageService<>(WorkspaceVariableMessage.class);
+        storage.updateQuota(100_000L);
+        return storage;
+    }
+
+    // same as ContextVarImpl.convertBigDecimal
+    private static Object convertBigDecimal(BigDecimal value) {
+        if (value.scale() == 0) {
+            return value.longValueExact();
+        }
+        return value.floatValue();
+    }
+}
@@ -0,0 +1,70 @@
+package org.homio.app.utils;
+
+import static org.homio.api.util.JsonUtils.OBJECT_MAPPER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Map;
+import org.junit.Test;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+public class MessagePackUtilsTest {
+
+    @Test
+    public void testBatchFrameRoundTrip() throws Exception {
+        ObjectNode frame = OBJECT_MAPPER.createObjectNode()
+            .put("entityID", "wg_1")
+            .put("value", 21.5)
+            .put("count", 3)
+            .put("online", true)
+            .putNull("error");
+        ObjectNode envelope = OBJECT_MAPPER.createObjectNode().put("type", "batch");
+        envelope.putArray("items").add(frame);
+
+        byte[] payload = MessagePackUtils.pack(envelope);
+
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(payload)) {
+            assertEquals(2, unpacker.unpackMapHeader());
+            assertEquals("type", unpacker.unpackString());
+            assertEquals("batch", unpacker.unpackString());
+            assertEquals("items", unpacker.unpackString());
+            assertEquals(1, unpacker.unpackArrayHeader());
+
+            assertEquals(5, unpacker.unpackMapHeader());
+            assertEquals("entityID", unpacker.unpackString());
+            assertEquals("wg_1", unpacker.unpackString());
+            assertEquals("value", unpacker.unpackString());
+            assertEquals(21.5, unpacker.unpackDouble(), 0);
+            assertEquals("count", unpacker.unpackString());
+            assertEquals(3, unpacker.unpackLong());
+            assertEquals("online", unpacker.unpackString());
+            assertTrue(unpacker.unpackBoolean());
+            assertEquals("error", unpacker.unpackString());
+            unpacker.unpackNil();
+            assertFalse(unpacker.hasNext());
+        }
+    }
+
+    @Test
+    public void testPojoNode() throws Exception {
+        ObjectNode node = OBJECT_MAPPER.createObjectNode()
+            .putPOJO("request", Map.of("level", 2))
+            .putPOJO("empty", null);
+
+        byte[] payload = MessagePackUtils.pack(node);
+
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(payload)) {
+            assertEquals(2, unpacker.unpackMapHeader());
+            assertEquals("request", unpacker.unpackString());
+            assertEquals(1, unpacker.unpackMapHeader());
+            assertEquals("level", unpacker.unpackString());
+            assertEquals(2, unpacker.unpackLong());
+            assertEquals("empty", unpacker.unpackString());
+            unpacker.unpackNil();
+            assertFalse(unpacker.hasNext());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.homio.app.workspace;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+import org.homio.api.Context;
+import org.homio.api.ContextBGP;
+import org.homio.api.workspace.scratch.Scratch3ExtensionBlocks;
+import org.homio.app.BenchmarkRunner;
+import org.homio.app.workspace.WorkspaceService.WorkspaceTabHolder;
+import org.homio.app.workspace.block.core.Scratch3OperatorBlocks;
+import org.json.JSONArray;
+
+/**
+ * Repeated evaluation of operator_add block tree (same inputs layout as scratch workspace json) with blocks linked by
+ * WorkspaceBlockImpl.compile() against previous interpretation of raw json inputs and extension/opcode/block id lookups
+ */
+public final class WorkspaceBlockBenchmark {
+
+    // 2^DEPTH - 1 operator blocks
+    private static final int DEPTH = 6;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        Context context = mock(Context.class, RETURNS_DEEP_STUBS);
+        Map<String, Scratch3ExtensionBlocks> scratch3Blocks = Map.of("operator", new Scratch3OperatorBlocks(context));
+
+        WorkspaceBlockImpl interpreted = createTree(new WorkspaceTabHolder("interpreted", context, scratch3Blocks));
+        WorkspaceBlockImpl compiled = createTree(new WorkspaceTabHolder("compiled", context, scratch3Blocks));
+        for (WorkspaceBlockImpl block : compiled.getWorkspaceTabHolder().getBlocks().values()) {
+            block.compile();
+        }
+
+        for (int round = 1; round <= 3; round++) {
+            System.out.println("Round " + round);
+            BenchmarkRunner.run("interpreted json inputs", WARMUP, ITERATIONS, interpreted::evaluate);
+            BenchmarkRunner.run("compiled block graph", WARMUP, ITERATIONS, compiled::evaluate);
+        }
+    }
+
+    private static WorkspaceBlockImpl createTree(WorkspaceTabHolder holder) {
+        WorkspaceBlockImpl root = createBlock(holder, "0", null, DEPTH);
+        root.setTopLevel(true);
+        root.setThreadContext(mock(ContextBGP.ThreadContext.class));
+        return root;
+    }
+
+    private static WorkspaceBlockImpl createBlock(WorkspaceTabHolder holder, String id, WorkspaceBlockImpl parent, int depth) {
+        WorkspaceBlockImpl block = new WorkspaceBlockImpl(id, holder);
+        block.setOpcode("operator_add");
+        block.setParent(parent);
+        holder.getBlocks().put(id, block);
+        for (String key : new String[]{"NUM1", "NUM2"}) {
+            if (depth > 1) {
+                String childId = id + key.charAt(3);
+                createBlock(holder, childId, block, depth - 1);
+                block.getInputs().put(key, new JSONArray().put(3).put(childId).put(new JSONArray().put(4).put("0")));
+            } else {
+                block.getInputs().put(key, new JSONArray().put(1).put(new JSONArray().put(4).put("1.5")));
+            }
+        }
+        return block;
+    }
+}